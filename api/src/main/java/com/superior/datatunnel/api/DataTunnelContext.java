@@ -2,6 +2,8 @@ package com.superior.datatunnel.api;
 
 import com.superior.datatunnel.api.model.DataTunnelSinkOption;
 import com.superior.datatunnel.api.model.DataTunnelSourceOption;
+import java.util.HashMap;
+import java.util.Map;
 import org.apache.spark.sql.SparkSession;
 
 public class DataTunnelContext {
@@ -18,6 +20,9 @@ public class DataTunnelContext {
 
     private SparkSession sparkSession = SparkSession.active();
 
+    // 同一个任务中 source 和 sink 之间传递的状态，例如增量读取位置
+    private final Map<String, Object> attributes = new HashMap<>();
+
     public DataSourceType getSourceType() {
         return sourceType;
     }
@@ -65,4 +70,13 @@ public class DataTunnelContext {
     public void setSparkSession(SparkSession sparkSession) {
         this.sparkSession = sparkSession;
     }
+
+    public void setAttribute(String key, Object value) {
+        attributes.put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getAttribute(String key) {
+        return (T) attributes.get(key);
+    }
 }
@@ -20,6 +20,11 @@ public interface DataTunnelSource extends Serializable {
 
     Class<? extends DataTunnelSourceOption> getOptionClass();
 
+    /**
+     * sink 写入成功后调用，用于提交增量读取位置等状态
+     */
+    default void commit(DataTunnelContext context) throws IOException {}
+
     default boolean supportCte() {
         return false;
     }
@@ -32,6 +32,24 @@ public class DistCpOption implements Serializable {
 
     private boolean excludeHiddenFile = true;
 
+    private Long chunkThresholdBytes = 0L;
+
+    private Long chunkSizeBytes = 268435456L;
+
+    private String updateCompareMode = "checksum";
+
+    private String manifestPath;
+
+    private boolean manifestTrustFolderMtime = false;
+
+    private int distributedListingDepth = 0;
+
+    private int maxBandwidthMb = 0;
+
+    private int maxBandwidthMbPerTask = 0;
+
+    private int maxStreamsPerHost = 0;
+
     public boolean updateOverwritePathBehaviour() {
         return !consistentPathBehaviour && (update || overwrite);
     }
@@ -147,4 +165,76 @@ public class DistCpOption implements Serializable {
     public void setExcludeHiddenFile(boolean excludeHiddenFile) {
         this.excludeHiddenFile = excludeHiddenFile;
     }
+
+    public Long getChunkThresholdBytes() {
+        return chunkThresholdBytes;
+    }
+
+    public void setChunkThresholdBytes(Long chunkThresholdBytes) {
+        this.chunkThresholdBytes = chunkThresholdBytes;
+    }
+
+    public Long getChunkSizeBytes() {
+        return chunkSizeBytes;
+    }
+
+    public void setChunkSizeBytes(Long chunkSizeBytes) {
+        this.chunkSizeBytes = chunkSizeBytes;
+    }
+
+    public String getUpdateCompareMode() {
+        return updateCompareMode;
+    }
+
+    public void setUpdateCompareMode(String updateCompareMode) {
+        this.updateCompareMode = updateCompareMode;
+    }
+
+    public String getManifestPath() {
+        return manifestPath;
+    }
+
+    public void setManifestPath(String manifestPath) {
+        this.manifestPath = manifestPath;
+    }
+
+    public boolean isManifestTrustFolderMtime() {
+        return manifestTrustFolderMtime;
+    }
+
+    public void setManifestTrustFolderMtime(boolean manifestTrustFolderMtime) {
+        this.manifestTrustFolderMtime = manifestTrustFolderMtime;
+    }
+
+    public int getDistributedListingDepth() {
+        return distributedListingDepth;
+    }
+
+    public void setDistributedListingDepth(int distributedListingDepth) {
+        this.distributedListingDepth = distributedListingDepth;
+    }
+
+    public int getMaxBandwidthMb() {
+        return maxBandwidthMb;
+    }
+
+    public void setMaxBandwidthMb(int maxBandwidthMb) {
+        this.maxBandwidthMb = maxBandwidthMb;
+    }
+
+    public int getMaxBandwidthMbPerTask() {
+        return maxBandwidthMbPerTask;
+    }
+
+    public void setMaxBandwidthMbPerTask(int maxBandwidthMbPerTask) {
+        this.maxBandwidthMbPerTask = maxBandwidthMbPerTask;
+    }
+
+    public int getMaxStreamsPerHost() {
+        return maxStreamsPerHost;
+    }
+
+    public void setMaxStreamsPerHost(int maxStreamsPerHost) {
+        this.maxStreamsPerHost = maxStreamsPerHost;
+    }
 }
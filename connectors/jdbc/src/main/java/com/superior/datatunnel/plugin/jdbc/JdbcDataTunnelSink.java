@@ -9,6 +9,7 @@ import com.superior.datatunnel.api.model.DataTunnelSinkOption;
 import com.superior.datatunnel.common.enums.WriteMode;
 import com.superior.datatunnel.common.util.JdbcUtils;
 import com.superior.datatunnel.plugin.jdbc.support.JdbcDialectUtils;
+import com.superior.datatunnel.plugin.jdbc.support.JdbcMetadataCache;
 import io.github.melin.jobserver.spark.api.LogUtils;
 import java.io.IOException;
 import java.sql.*;
@@ -35,7 +36,7 @@ public class JdbcDataTunnelSink implements DataTunnelSink {
     private static final Logger LOG = LoggerFactory.getLogger(JdbcDataTunnelSink.class);
 
     private static final DataSourceType[] SUPPORT_BULKINSERT =
-            new DataSourceType[] {SQLSERVER, MYSQL, GAUSSDWS, POSTGRESQL, REDSHIFT, OCEANBASE};
+            new DataSourceType[] {SQLSERVER, MYSQL, GAUSSDWS, POSTGRESQL, REDSHIFT, OCEANBASE, ORACLE};
 
     public void validateOptions(DataTunnelContext context) {
         DataSourceType dsType = context.getSinkOption().getDataSourceType();
@@ -61,6 +62,7 @@ public class JdbcDataTunnelSink implements DataTunnelSink {
     @Override
     public void sink(Dataset<Row> dataset, DataTunnelContext context) throws IOException {
         validateOptions(context);
+        JdbcMetadataCache.beginJob(context);
 
         JdbcDataTunnelSinkOption sinkOption = (JdbcDataTunnelSinkOption) context.getSinkOption();
         DataSourceType dataSourceType = sinkOption.getDataSourceType();
@@ -100,7 +102,7 @@ public class JdbcDataTunnelSink implements DataTunnelSink {
             final WriteMode writeMode = sinkOption.getWriteMode();
             if (!ArrayUtils.contains(SUPPORT_BULKINSERT, dataSourceType) && writeMode == WriteMode.BULKINSERT) {
                 throw new DataTunnelException(
-                        "write mode: Bulk insert, only support: gauss, postgresql, mysql, sqlserver");
+                        "write mode: Bulk insert, only support: gauss, postgresql, mysql, sqlserver, oracle");
             }
 
             SaveMode saveMode = SaveMode.Append;
@@ -123,7 +125,7 @@ public class JdbcDataTunnelSink implements DataTunnelSink {
             // 如果输入表字段和输出表字段位置不一致，调整位置。
             String[] sinkColumns = sinkOption.getColumns();
             if (sinkOption.getColumns().length == 1 && sinkOption.getColumns()[0].equals("*")) {
-                sinkColumns = JdbcUtils.queryTableColumnNames(connection, fullTableName);
+                sinkColumns = JdbcDialectUtils.queryTableColumnNames(connection, fullTableName);
                 String[] sourceColumns = dataset.schema().fieldNames();
                 if (sinkColumns.length != sourceColumns.length) {
                     throw new DataTunnelException("source 和 sink 字段数量不一致");
@@ -156,7 +158,23 @@ public class JdbcDataTunnelSink implements DataTunnelSink {
                     .option("writeMode", writeMode.name().toLowerCase())
                     .option("columns", StringUtils.join(sinkOption.getColumns(), ","))
                     .option("dataSourceType", dataSourceType.name())
-                    .option("isolationLevel", sinkOption.getIsolationLevel());
+                    .option("isolationLevel", sinkOption.getIsolationLevel())
+                    .option("multiRowInsert", sinkOption.isMultiRowInsert())
+                    .option("maxConnections", sinkOption.getMaxConnections())
+                    .option("writerThreads", sinkOption.getWriterThreads())
+                    .option("stagingUpsert", sinkOption.isStagingUpsert())
+                    .option("mergeChunks", sinkOption.getMergeChunks())
+                    .option("exactlyOnce", sinkOption.isExactlyOnce())
+                    .option("bulkChunkSizeMb", sinkOption.getBulkChunkSizeMb())
+                    .option("bulkChunkRows", sinkOption.getBulkChunkRows())
+                    .option("bulkParallelism", sinkOption.getBulkParallelism())
+                    .option("bulkMaxRetries", sinkOption.getBulkMaxRetries())
+                    .option("tableLock", sinkOption.isTableLock())
+                    .option("bulkArraySize", sinkOption.getBulkArraySize());
+
+            if (StringUtils.isNotBlank(sinkOption.getCommitLogTable())) {
+                dataFrameWriter.option("commitLogTable", sinkOption.getCommitLogTable());
+            }
 
             String[] upsertKeyColumns = sinkOption.getUpsertKeyColumns();
             // 没有设置upsertKeyColumns，自动获取主键
@@ -51,6 +51,45 @@ public class JdbcDataTunnelSinkOption extends BaseSinkOption {
 
     private String isolationLevel = "READ_UNCOMMITTED";
 
+    @OptionDesc("oracle、db2、dameng、sqlserver 写入时，一个 insert 语句写入多行记录(oracle 使用 INSERT ALL)，默认：true")
+    private boolean multiRowInsert = true;
+
+    @OptionDesc("写入数据库最大连接数，设置后写入分区数量调整为 maxConnections / writerThreads，和上游分区数量无关，0 表示不限制，默认：0")
+    private int maxConnections = 0;
+
+    @OptionDesc("每个写入分区并发写入的线程数，每个线程使用独立连接，默认：1")
+    private int writerThreads = 1;
+
+    @OptionDesc("oracle、sqlserver、db2、dameng upsert 时，数据先批量写入 staging 表，再执行一次 MERGE INTO 目标表，默认：false")
+    private boolean stagingUpsert = false;
+
+    @OptionDesc("postgresql bulkinsert upsert 时，临时表数据按照主键范围分为多个批次合并到目标表，每个批次单独提交，默认：1")
+    private int mergeChunks = 1;
+
+    @OptionDesc("insert 写入时每个分区数据和提交日志在同一个事务中提交，task 重试或者推测执行不会重复写入，默认：false")
+    private boolean exactlyOnce = false;
+
+    @OptionDesc("exactlyOnce 提交日志表，不存在时自动创建，默认为目标表 schema 下的 datatunnel_commit_log")
+    private String commitLogTable;
+
+    @OptionDesc("mysql、oceanbase bulkinsert: 每个 LOAD DATA 语句最大数据量(MB)，0 表示不限制，默认：64")
+    private int bulkChunkSizeMb = 64;
+
+    @OptionDesc("mysql、oceanbase bulkinsert: 每个 LOAD DATA 语句最大记录数，0 表示不限制，默认：0")
+    private int bulkChunkRows = 0;
+
+    @OptionDesc("mysql、oceanbase bulkinsert: 每个分区并发执行 LOAD DATA 的连接数，默认：1")
+    private int bulkParallelism = 1;
+
+    @OptionDesc("mysql、oceanbase bulkinsert: LOAD DATA 语句失败重试次数，只重试建立连接失败、死锁和锁等待超时，默认：3")
+    private int bulkMaxRetries = 3;
+
+    @OptionDesc("sqlserver bulkinsert: SQLServerBulkCopy 写入时使用表锁，默认：true")
+    private boolean tableLock = true;
+
+    @OptionDesc("oracle bulkinsert: APPEND_VALUES 直接路径写入每批记录数，每批提交一次，分区任务失败不重试(重试会重复写入已提交的批次)，默认：10000")
+    private int bulkArraySize = 10000;
+
     public String getFullTableName() {
         return databaseName + "." + tableName;
     }
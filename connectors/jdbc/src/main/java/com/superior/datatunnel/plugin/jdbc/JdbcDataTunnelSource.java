@@ -1,17 +1,22 @@
 package com.superior.datatunnel.plugin.jdbc;
 
+import static com.superior.datatunnel.api.DataSourceType.MYSQL;
+import static com.superior.datatunnel.api.DataSourceType.OCEANBASE;
 import static com.superior.datatunnel.api.DataSourceType.ORACLE;
 import static java.sql.Types.*;
 
 import com.clearspring.analytics.util.Lists;
 import com.gitee.melin.bee.core.jdbc.dialect.JdbcDialectHolder;
+import com.gitee.melin.bee.util.JsonUtils;
 import com.gitee.melin.bee.util.Predicates;
 import com.superior.datatunnel.api.*;
 import com.superior.datatunnel.api.model.DataTunnelSourceOption;
 import com.superior.datatunnel.common.util.CommonUtils;
 import com.superior.datatunnel.common.util.JdbcUtils;
+import com.superior.datatunnel.plugin.jdbc.enums.PartitionStrategy;
 import com.superior.datatunnel.plugin.jdbc.support.Column;
 import com.superior.datatunnel.plugin.jdbc.support.JdbcDialectUtils;
+import com.superior.datatunnel.plugin.jdbc.support.JdbcMetadataCache;
 import io.github.melin.jobserver.spark.api.LogUtils;
 import java.io.IOException;
 import java.sql.Connection;
@@ -21,17 +26,28 @@ import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Predicate;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.spark.sql.*;
+import org.apache.spark.sql.datatunnel.jdbc.DatasetUnionUtils;
+import org.apache.spark.sql.datatunnel.jdbc.JdbcColumnarSource;
 import org.apache.spark.sql.execution.datasources.jdbc.JDBCOptions;
 import org.apache.spark.sql.jdbc.JdbcDialect;
 import org.apache.spark.sql.jdbc.JdbcDialects;
 import org.glassfish.jersey.internal.guava.Sets;
+import org.postgresql.PGConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import scala.collection.JavaConverters;
@@ -48,12 +64,34 @@ public class JdbcDataTunnelSource implements DataTunnelSource {
 
     private static final String ORALCE_ROWID_ALIAS = "rowid_hash";
 
+    private static final int MIN_FETCH_SIZE = 10;
+
+    private static final int MAX_FETCH_SIZE = 100000;
+
+    private static final String LAST_WATERMARKS = "jdbc.lastWatermarks";
+
+    private static final String PENDING_WATERMARKS = "jdbc.pendingWatermarks";
+
     public void validateOptions(DataTunnelContext context) {
         DataSourceType dsType = context.getSourceOption().getDataSourceType();
 
         if (!DataSourceType.isJdbcDataSource(dsType)) {
             throw new IllegalArgumentException("不支持数据源类型: " + dsType);
         }
+
+        JdbcDataTunnelSourceOption sourceOption = (JdbcDataTunnelSourceOption) context.getSourceOption();
+        if (StringUtils.isNotBlank(sourceOption.getWatermarkColumn())
+                && StringUtils.isBlank(sourceOption.getWatermarkStatePath())) {
+            throw new DataTunnelException("设置 watermarkColumn 时，watermarkStatePath 不能为空");
+        }
+
+        if (sourceOption.isBulkExport()
+                && dsType != DataSourceType.POSTGRESQL
+                && dsType != DataSourceType.GREENPLUM
+                && dsType != DataSourceType.GAUSSDWS
+                && dsType != DataSourceType.HASHDATA) {
+            throw new DataTunnelException("bulkExport 只支持 postgresql、greenplum、gaussdws、hashdata 数据源");
+        }
     }
 
     @Override
@@ -76,6 +114,7 @@ public class JdbcDataTunnelSource implements DataTunnelSource {
     @Override
     public Dataset<Row> read(DataTunnelContext context) throws IOException {
         validateOptions(context);
+        JdbcMetadataCache.beginJob(context);
 
         JdbcDataTunnelSourceOption sourceOption = (JdbcDataTunnelSourceOption) context.getSourceOption();
         DataSourceType dataSourceType = sourceOption.getDataSourceType();
@@ -85,7 +124,6 @@ public class JdbcDataTunnelSource implements DataTunnelSource {
             schemaName = sourceOption.getDatabaseName();
         }
         String tableName = sourceOption.getTableName();
-        String[] columns = sourceOption.getColumns();
 
         String jdbcUrl = sourceOption.getJdbcUrl();
         if (StringUtils.isBlank(jdbcUrl)) {
@@ -114,95 +152,232 @@ public class JdbcDataTunnelSource implements DataTunnelSource {
             throw new DataTunnelException("没有找到匹配的表, schemaName: " + schemaName + ", tableName: " + tableName);
         }
 
-        Dataset<Row> dataset = null;
-        for (int i = 0, len = tableNames.size(); i < len; i++) {
-            Pair<String, String> pair = tableNames.get(i);
-            if (dataSourceType == ORACLE) {
-                statOracleTable(connection, sourceOption, pair.getLeft(), pair.getRight());
-            } else {
-                statTable(connection, sourceOption, pair.getLeft(), pair.getRight());
+        if (StringUtils.isNotBlank(sourceOption.getWatermarkColumn())) {
+            WatermarkStateStore stateStore = new WatermarkStateStore(
+                    sourceOption.getWatermarkStatePath(),
+                    context.getSparkSession().sparkContext().hadoopConfiguration());
+            context.setAttribute(LAST_WATERMARKS, stateStore.load());
+            context.setAttribute(PENDING_WATERMARKS, new ConcurrentHashMap<String, String>());
+        }
+
+        int threads = Math.max(1, Math.min(sourceOption.getPlanningThreads(), tableNames.size()));
+        AtomicReferenceArray<Dataset<Row>> results = new AtomicReferenceArray<>(tableNames.size());
+        AtomicInteger nextIndex = new AtomicInteger(0);
+        if (threads == 1) {
+            try {
+                readTables(context, sourceOption, jdbcUrl, connection, tableNames, nextIndex, results);
+            } finally {
+                JdbcUtils.close(connection);
             }
+        } else {
+            // 多表读取时，并发统计表信息，每个线程使用独立的数据库连接
+            LogUtils.info("read {} tables, planning threads: {}", tableNames.size(), threads);
+            final String url = jdbcUrl;
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = Lists.newArrayList();
+                for (int i = 0; i < threads; i++) {
+                    final boolean reuseConnection = i == 0;
+                    futures.add(pool.submit(() -> {
+                        Connection conn = reuseConnection ? connection : buildConnection(url, options);
+                        try {
+                            readTables(context, sourceOption, url, conn, tableNames, nextIndex, results);
+                        } finally {
+                            JdbcUtils.close(conn);
+                        }
+                    }));
+                }
 
-            String fullTableName = pair.getLeft() + "." + pair.getRight();
-            String[] newColumns = Arrays.copyOf(columns, columns.length);
-            // 如果存在字段名：dt_meta_table，设置当前表名作为值
-            for (int index = 0; index < newColumns.length; index++) {
-                if (META_TABLE_NAME_FIELD.equalsIgnoreCase(newColumns[index])) {
-                    newColumns[index] = "'" + fullTableName + "' as " + newColumns[index];
-                    break;
+                for (Future<?> future : futures) {
+                    future.get();
                 }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof DataTunnelException) {
+                    throw (DataTunnelException) cause;
+                }
+                throw new DataTunnelException(cause.getMessage(), cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DataTunnelException(e.getMessage(), e);
+            } finally {
+                pool.shutdownNow();
+                JdbcUtils.close(connection);
             }
+        }
 
-            if (dataSourceType == ORACLE) {
-                if (newColumns.length == 1 && "*".equals(newColumns[0])) {
-                    newColumns =
-                            JdbcDialectUtils.queryColumns(dataSourceType, schemaName, tableName, connection).stream()
-                                    .map(Column::name)
-                                    .toArray(String[]::new);
-                }
+        JdbcMetadataCache.logStats();
+        List<Dataset<Row>> datasets = Lists.newArrayList();
+        for (int i = 0; i < results.length(); i++) {
+            datasets.add(results.get(i));
+        }
+        return DatasetUnionUtils.unionAll(datasets);
+    }
+
+    private void readTables(
+            DataTunnelContext context,
+            JdbcDataTunnelSourceOption sourceOption,
+            String jdbcUrl,
+            Connection connection,
+            List<Pair<String, String>> tableNames,
+            AtomicInteger nextIndex,
+            AtomicReferenceArray<Dataset<Row>> results) {
+
+        int index;
+        while ((index = nextIndex.getAndIncrement()) < tableNames.size()) {
+            Pair<String, String> pair = tableNames.get(index);
+            results.set(index, readTable(context, sourceOption, jdbcUrl, connection, pair));
+        }
+    }
 
+    private Dataset<Row> readTable(
+            DataTunnelContext context,
+            JdbcDataTunnelSourceOption sourceOption,
+            String jdbcUrl,
+            Connection connection,
+            Pair<String, String> pair) {
+
+        DataSourceType dataSourceType = sourceOption.getDataSourceType();
+        String[] columns = sourceOption.getColumns();
+        SplitOptions splitOptions = new SplitOptions(sourceOption, pair);
+        if (StringUtils.isNotBlank(sourceOption.getWatermarkColumn())) {
+            applyWatermark(connection, context, sourceOption, splitOptions, pair.getLeft(), pair.getRight());
+        }
+        String[] predicates = null;
+        if (sourceOption.getPartitionStrategy() != PartitionStrategy.RANGE) {
+            predicates = planPredicateSplits(connection, sourceOption, splitOptions, pair.getLeft(), pair.getRight());
+        } else if (dataSourceType == ORACLE) {
+            predicates = planOracleRowIdSplits(connection, sourceOption, pair.getLeft(), pair.getRight());
+        }
+        boolean oracleRowIdHash = dataSourceType == ORACLE && predicates == null;
+        if (predicates != null) {
+            LogUtils.info("table {}.{} split predicates: {}", pair.getLeft(), pair.getRight(), predicates.length);
+        } else if (oracleRowIdHash) {
+            statOracleTable(connection, sourceOption, splitOptions, pair.getLeft(), pair.getRight());
+        } else {
+            statTable(connection, sourceOption, splitOptions, pair.getLeft(), pair.getRight());
+            // 没有数字类型切片字段时，使用主键或者唯一索引 keyset 方式切片
+            if (StringUtils.isBlank(splitOptions.partitionColumn)
+                    && splitOptions.numPartitions != null
+                    && splitOptions.numPartitions > 1) {
+                predicates = planKeysetSplits(connection, sourceOption, splitOptions, pair.getLeft(), pair.getRight());
+            }
+        }
+
+        String fullTableName = pair.getLeft() + "." + pair.getRight();
+        String[] newColumns = Arrays.copyOf(columns, columns.length);
+        // 如果存在字段名：dt_meta_table，设置当前表名作为值
+        for (int index = 0; index < newColumns.length; index++) {
+            if (META_TABLE_NAME_FIELD.equalsIgnoreCase(newColumns[index])) {
+                newColumns[index] = "'" + fullTableName + "' as " + newColumns[index];
+                break;
+            }
+        }
+
+        if (dataSourceType == ORACLE) {
+            if (newColumns.length == 1 && "*".equals(newColumns[0])) {
+                newColumns = JdbcDialectUtils.queryColumns(
+                                dataSourceType, splitOptions.schemaName, splitOptions.tableName, connection)
+                        .stream()
+                        .map(Column::name)
+                        .toArray(String[]::new);
+            }
+
+            if (oracleRowIdHash) {
                 newColumns = ArrayUtils.addFirst(newColumns, "ORA_HASH(ROWID) AS " + ORALCE_ROWID_ALIAS);
             }
+        }
 
-            String condition = StringUtils.trim(sourceOption.getCondition());
-            if (StringUtils.isNotBlank(condition)) {
-                if (StringUtils.startsWithIgnoreCase(condition, "where")) {
-                    fullTableName = "(SELECT " + StringUtils.join(newColumns, ",") + " FROM " + fullTableName + " "
-                            + condition + ") tdl_datatunnel";
-                } else {
-                    fullTableName = "(SELECT " + StringUtils.join(newColumns, ",") + " FROM " + fullTableName
-                            + " where " + condition + ") tdl_datatunnel";
-                }
+        String condition = StringUtils.trim(splitOptions.condition);
+        if (StringUtils.isNotBlank(condition)) {
+            if (StringUtils.startsWithIgnoreCase(condition, "where")) {
+                fullTableName = "(SELECT " + StringUtils.join(newColumns, ",") + " FROM " + fullTableName + " "
+                        + condition + ") tdl_datatunnel";
             } else {
-                fullTableName =
-                        "(SELECT " + StringUtils.join(newColumns, ",") + " FROM " + fullTableName + ") tdl_datatunnel";
-            }
-            LOG.info("read table: {}", fullTableName);
-
-            int fetchsize = sourceOption.getFetchsize();
-            int queryTimeout = sourceOption.getQueryTimeout();
-            String username = sourceOption.getUsername();
-            String password = sourceOption.getPassword();
-            if (StringUtils.isBlank(password)) {
-                LogUtils.warn("password is blank");
-            }
-
-            DataFrameReader reader = context.getSparkSession()
-                    .read()
-                    .format("jdbc")
-                    .options(sourceOption.getProperties())
-                    .option("url", jdbcUrl)
-                    .option("dbtable", fullTableName)
-                    .option("fetchsize", fetchsize)
-                    .option("queryTimeout", queryTimeout)
-                    .option("user", username)
-                    .option("password", password)
-                    .option("pushDownPredicate", sourceOption.isPushDownPredicate())
-                    .option("pushDownAggregate", sourceOption.isPushDownAggregate())
-                    .option("pushDownLimit", sourceOption.isPushDownLimit());
-
-            if (StringUtils.isNotBlank(sourceOption.getPartitionColumn())) {
-                reader.option("partitionColumn", sourceOption.getPartitionColumn())
-                        .option("numPartitions", sourceOption.getNumPartitions())
-                        .option("lowerBound", sourceOption.getLowerBound())
-                        .option("upperBound", sourceOption.getUpperBound());
-            }
-
-            Dataset<Row> result = reader.load();
-
-            if (i == 0) {
-                dataset = result;
+                fullTableName = "(SELECT " + StringUtils.join(newColumns, ",") + " FROM " + fullTableName + " where "
+                        + condition + ") tdl_datatunnel";
+            }
+        } else {
+            fullTableName =
+                    "(SELECT " + StringUtils.join(newColumns, ",") + " FROM " + fullTableName + ") tdl_datatunnel";
+        }
+        LOG.info("read table: {}", fullTableName);
+
+        int fetchsize = sourceOption.getFetchsize();
+        if (sourceOption.isAdaptiveFetchsize()) {
+            fetchsize = computeFetchsize(connection, sourceOption, fullTableName);
+        }
+        int queryTimeout = sourceOption.getQueryTimeout();
+        String username = sourceOption.getUsername();
+        String password = sourceOption.getPassword();
+        if (StringUtils.isBlank(password)) {
+            LogUtils.warn("password is blank");
+        }
+
+        boolean columnarRead = sourceOption.isVectorizedRead() || sourceOption.isBulkExport();
+        boolean pgCopy = sourceOption.isBulkExport() && supportsPgCopy(connection);
+        if (sourceOption.isBulkExport() && !pgCopy) {
+            LogUtils.warn("jdbc 驱动不支持 postgresql COPY, 表 {} 使用 ResultSet 列式读取", fullTableName);
+        }
+        DataFrameReader reader = context.getSparkSession()
+                .read()
+                .format(columnarRead ? JdbcColumnarSource.SHORT_NAME() : "jdbc")
+                .options(sourceOption.getProperties())
+                .option("url", jdbcUrl)
+                .option("dbtable", fullTableName)
+                .option("fetchsize", fetchsize)
+                .option("queryTimeout", queryTimeout)
+                .option("user", username)
+                .option("password", password)
+                .option("pushDownPredicate", sourceOption.isPushDownPredicate())
+                .option("pushDownAggregate", sourceOption.isPushDownAggregate())
+                .option("pushDownLimit", sourceOption.isPushDownLimit());
+
+        if (pgCopy) {
+            reader.option(JdbcColumnarSource.PG_COPY(), true);
+        }
+
+        if (sourceOption.isStreamingRead()) {
+            applyStreamingOptions(reader, sourceOption, fetchsize);
+        }
+
+        Dataset<Row> result;
+        if (predicates != null) {
+            if (columnarRead) {
+                result = reader.option(JdbcColumnarSource.PREDICATES(), JsonUtils.toJSONString(predicates))
+                        .load();
             } else {
-                dataset = dataset.unionAll(result);
+                result = reader.jdbc(jdbcUrl, fullTableName, predicates, new Properties());
+            }
+        } else {
+            if (StringUtils.isNotBlank(splitOptions.partitionColumn)) {
+                reader.option("partitionColumn", splitOptions.partitionColumn)
+                        .option("numPartitions", splitOptions.numPartitions)
+                        .option("lowerBound", splitOptions.lowerBound)
+                        .option("upperBound", splitOptions.upperBound);
             }
+            result = reader.load();
         }
 
-        JdbcUtils.close(connection);
+        if (oracleRowIdHash) {
+            result = result.drop(ORALCE_ROWID_ALIAS);
+        }
+        return result;
+    }
 
-        if (dataSourceType == ORACLE) {
-            dataset = dataset.drop(ORALCE_ROWID_ALIAS);
+    @Override
+    public void commit(DataTunnelContext context) throws IOException {
+        Map<String, String> watermarks = context.getAttribute(PENDING_WATERMARKS);
+        if (watermarks == null || watermarks.isEmpty()) {
+            return;
         }
-        return dataset;
+
+        JdbcDataTunnelSourceOption sourceOption = (JdbcDataTunnelSourceOption) context.getSourceOption();
+        WatermarkStateStore stateStore = new WatermarkStateStore(
+                sourceOption.getWatermarkStatePath(),
+                context.getSparkSession().sparkContext().hadoopConfiguration());
+        stateStore.commit(watermarks);
+        LogUtils.info("commit watermark {}: {}", sourceOption.getWatermarkStatePath(), watermarks);
     }
 
     private List<String> getSchemaNames(String schemaName, com.gitee.melin.bee.core.jdbc.dialect.JdbcDialect dialect) {
@@ -251,6 +426,17 @@ public class JdbcDataTunnelSource implements DataTunnelSource {
         params.remove("lowerBound");
         params.remove("upperBound");
         params.remove("numPartitions");
+        params.remove("partitionStrategy");
+        params.remove("sampleSize");
+        params.remove("planningThreads");
+        params.remove("watermarkColumn");
+        params.remove("watermarkStatePath");
+        params.remove("watermarkOverlap");
+        params.remove("adaptiveFetchsize");
+        params.remove("fetchBytes");
+        params.remove("streamingRead");
+        params.remove("vectorizedRead");
+        params.remove("bulkExport");
         params.put("user", sourceOption.getUsername());
         return new JDBCOptions(url, dbtable, javaMapToScala(params));
     }
@@ -262,6 +448,15 @@ public class JdbcDataTunnelSource implements DataTunnelSource {
         return (scala.collection.immutable.Map<String, String>) result;
     }
 
+    // gaussdws、hashdata 等数据库的驱动不一定实现 PGConnection
+    private static boolean supportsPgCopy(Connection connection) {
+        try {
+            return connection.isWrapperFor(PGConnection.class);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
     private Connection buildConnection(String url, JDBCOptions options) {
         try {
             JdbcDialect dialect = JdbcDialects.get(url);
@@ -272,14 +467,346 @@ public class JdbcDataTunnelSource implements DataTunnelSource {
         }
     }
 
-    private void statTable(
+    /**
+     * 增量读取: 读取 (上次提交的最大值 - watermarkOverlap, 当前最大值] 区间的数据，当前最大值在 sink 写入成功后提交。
+     * 第一次读取没有上次提交的值，读取小于等于当前最大值的全部数据。
+     */
+    private void applyWatermark(
+            Connection conn,
+            DataTunnelContext context,
+            JdbcDataTunnelSourceOption sourceOption,
+            SplitOptions splitOptions,
+            String schemaName,
+            String tableName) {
+        String column = sourceOption.getWatermarkColumn();
+        String fullTableName = schemaName + "." + tableName;
+        String stateKey = CommonUtils.cleanQuote(schemaName) + "." + CommonUtils.cleanQuote(tableName);
+        Map<String, String> lastWatermarks = context.getAttribute(LAST_WATERMARKS);
+        Map<String, String> pendingWatermarks = context.getAttribute(PENDING_WATERMARKS);
+
+        try {
+            JdbcSplitPlanner planner = new JdbcSplitPlanner(sourceOption.getDataSourceType(), conn);
+            Object maxValue = planner.queryMaxValue(fullTableName, column, splitOptions.condition);
+            String lastValue = lastWatermarks.get(stateKey);
+
+            List<String> conditions = Lists.newArrayList();
+            String condition = StringUtils.trim(splitOptions.condition);
+            if (StringUtils.startsWithIgnoreCase(condition, "where")) {
+                condition = StringUtils.trim(StringUtils.substring(condition, 5));
+            }
+            if (StringUtils.isNotBlank(condition)) {
+                conditions.add("(" + condition + ")");
+            }
+
+            if (maxValue == null) {
+                // 表中没有数据
+                conditions.add("1 = 0");
+            } else {
+                if (lastValue != null) {
+                    Object lowerValue =
+                            JdbcSplitPlanner.subtractOverlap(maxValue, lastValue, sourceOption.getWatermarkOverlap());
+                    conditions.add(column + " > " + planner.toSqlLiteral(lowerValue));
+                }
+                conditions.add(column + " <= " + planner.toSqlLiteral(maxValue));
+                pendingWatermarks.put(stateKey, JdbcSplitPlanner.formatValue(maxValue));
+            }
+
+            splitOptions.condition = StringUtils.join(conditions, " and ");
+            LogUtils.info(
+                    "table {} watermark column: {}, last value: {}, current value: {}",
+                    fullTableName,
+                    column,
+                    lastValue,
+                    maxValue);
+        } catch (SQLException e) {
+            throw new DataTunnelException(e.getMessage(), e);
+        }
+    }
+
+    // 根据采样数据的平均记录大小计算 fetchsize
+    private int computeFetchsize(Connection conn, JdbcDataTunnelSourceOption sourceOption, String fullTableName) {
+        int fetchsize = sourceOption.getFetchsize();
+        try {
+            JdbcSplitPlanner planner = new JdbcSplitPlanner(sourceOption.getDataSourceType(), conn);
+            double avgRowSize = planner.estimateAvgRowSize("select * from " + fullTableName, 100);
+            if (avgRowSize <= 0) {
+                return fetchsize;
+            }
+
+            long size = (long) (sourceOption.getFetchBytes() / avgRowSize);
+            int newFetchsize = (int) Math.max(MIN_FETCH_SIZE, Math.min(size, MAX_FETCH_SIZE));
+            LogUtils.info("avg row size: {} bytes, adaptive fetchsize: {}", (long) avgRowSize, newFetchsize);
+            return newFetchsize;
+        } catch (SQLException e) {
+            LogUtils.warn("compute fetchsize failed, use fetchsize {}: {}", fetchsize, e.getMessage());
+            return fetchsize;
+        }
+    }
+
+    /**
+     * 流式读取: mysql 默认把结果集全部加载到内存，开启 useCursorFetch 使用服务端游标按照 fetchsize 读取;
+     * oracle 设置 defaultRowPrefetch; postgresql fetchsize 大于 0 时 spark 会关闭 autocommit 使用游标读取。
+     */
+    private void applyStreamingOptions(DataFrameReader reader, JdbcDataTunnelSourceOption sourceOption, int fetchsize) {
+        DataSourceType dataSourceType = sourceOption.getDataSourceType();
+        Map<String, String> properties = sourceOption.getProperties();
+        if (dataSourceType == MYSQL) {
+            if (!properties.containsKey("useCursorFetch")) {
+                reader.option("useCursorFetch", "true");
+            }
+        } else if (dataSourceType == ORACLE) {
+            if (!properties.containsKey("defaultRowPrefetch")) {
+                reader.option("defaultRowPrefetch", fetchsize);
+            }
+        }
+
+        if (fetchsize <= 0) {
+            LogUtils.warn("streamingRead need fetchsize > 0, current fetchsize: {}", fetchsize);
+        }
+    }
+
+    // 如果没有设置partitionColumn，获取表主键，如果只有一个主键且为数字类型，自动设置为 partitionColumn 值。
+    private String inferPartitionColumn(
             Connection conn, JdbcDataTunnelSourceOption sourceOption, String schemaName, String tableName) {
-        PreparedStatement stmt = null;
+        DataSourceType dataSourceType = sourceOption.getDataSourceType();
+        String[] primaryKeys = JdbcDialectUtils.queryPrimaryKeys(dataSourceType, schemaName, tableName, conn);
+        if (primaryKeys.length == 1) {
+            String primaryKey = primaryKeys[0];
+            List<Column> columns = JdbcDialectUtils.queryColumns(dataSourceType, schemaName, tableName, conn);
+            for (Column column : columns) {
+                if (primaryKey.equals(column.name())) {
+                    int type = column.jdbcType();
+                    if (type == TINYINT
+                            || type == SMALLINT
+                            || type == INTEGER
+                            || type == BIGINT
+                            || type == FLOAT
+                            || type == DOUBLE
+                            || type == NUMERIC
+                            || type == DECIMAL) {
+
+                        LogUtils.info("自动推测 partitionColumn: {}", primaryKey);
+                        return primaryKey;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * partitionStrategy = sample 或 quantile，计算切片边界，返回每个切片的过滤条件。
+     * sample: 根据统计信息估算记录数，采样计算切片边界，没有统计信息时返回 null，使用 statTable 统计。
+     * quantile: 通过 NTILE 窗口函数计算精确的分位点作为切片边界。
+     * 无法确定切片字段时返回 null。
+     */
+    private String[] planPredicateSplits(
+            Connection conn,
+            JdbcDataTunnelSourceOption sourceOption,
+            SplitOptions splitOptions,
+            String schemaName,
+            String tableName) {
+        String partitionColumn = sourceOption.getPartitionColumn();
+        if (StringUtils.isBlank(partitionColumn)) {
+            partitionColumn = inferPartitionColumn(conn, sourceOption, schemaName, tableName);
+        }
+        if (StringUtils.isBlank(partitionColumn)) {
+            return null;
+        }
+
+        PartitionStrategy strategy = sourceOption.getPartitionStrategy();
+        String fullTableName = schemaName + "." + tableName;
+        String condition = splitOptions.condition;
         try {
-            String partitionColumn = sourceOption.getPartitionColumn();
-            String lowerBound = sourceOption.getLowerBound();
-            String upperBound = sourceOption.getUpperBound();
+            StopWatch stopWatch = StopWatch.createStarted();
+            JdbcSplitPlanner planner = new JdbcSplitPlanner(sourceOption.getDataSourceType(), conn);
+            long estimateCount = planner.estimateRowCount(schemaName, tableName);
             Integer numPartitions = sourceOption.getNumPartitions();
+            if (numPartitions != null && numPartitions <= 0) {
+                numPartitions = 1;
+            }
+
+            if (strategy == PartitionStrategy.QUANTILE && !planner.supportsNtile()) {
+                LogUtils.warn("table {} database not support NTILE, use partitionStrategy sample", fullTableName);
+                strategy = PartitionStrategy.SAMPLE;
+            }
+
+            List<Object> boundaries;
+            long count = estimateCount;
+            if (strategy == PartitionStrategy.QUANTILE) {
+                if (numPartitions == null) {
+                    if (estimateCount <= 0 || StringUtils.isNotBlank(condition)) {
+                        count = planner.countRows(fullTableName, condition);
+                    }
+                    numPartitions = computeNumPartitions(count, sourceOption);
+                }
+                boundaries = planner.queryQuantileBoundaries(fullTableName, partitionColumn, condition, numPartitions);
+            } else {
+                if (estimateCount <= 0) {
+                    LogUtils.warn(
+                            "table {} statistics not found, analyze table to use partitionStrategy sample",
+                            fullTableName);
+                    return null;
+                }
+
+                DataSourceType dataSourceType = sourceOption.getDataSourceType();
+                if (dataSourceType == MYSQL || dataSourceType == OCEANBASE) {
+                    // 不支持 TABLESAMPLE，随机采样需要全表扫描，使用字段直方图计算边界
+                    if (numPartitions == null) {
+                        numPartitions = computeNumPartitions(count, sourceOption);
+                    }
+                    boundaries = dataSourceType == MYSQL
+                            ? planner.queryMySqlHistogramBoundaries(
+                                    schemaName, tableName, partitionColumn, numPartitions)
+                            : null;
+                    if (boundaries == null) {
+                        LogUtils.warn(
+                                "table {} column {} histogram not found, use partitionStrategy range. "
+                                        + "mysql 8.0+ execute ANALYZE TABLE ... UPDATE HISTOGRAM ON column",
+                                fullTableName,
+                                partitionColumn);
+                        return null;
+                    }
+                } else {
+                    int sampleSize = sourceOption.getSampleSize();
+                    List<Object> values = planner.sampleColumnValues(
+                            fullTableName, partitionColumn, condition, estimateCount, sampleSize);
+
+                    // 存在过滤条件时，根据采样命中的记录数估算过滤后的记录数
+                    if (StringUtils.isNotBlank(condition) && estimateCount > sampleSize) {
+                        count = (long) ((double) values.size() * estimateCount / sampleSize);
+                    }
+                    if (numPartitions == null) {
+                        numPartitions = computeNumPartitions(count, sourceOption);
+                    }
+                    boundaries = JdbcSplitPlanner.computeBoundaries(values, numPartitions);
+                }
+            }
+
+            stopWatch.stop();
+            LogUtils.info(
+                    "ExecTimes: {}, table {} partitionStrategy: {}, record count: {}, partitionColumn: {},"
+                            + " numPartitions: {}",
+                    stopWatch.formatTime(),
+                    fullTableName,
+                    strategy,
+                    count,
+                    partitionColumn,
+                    boundaries.size() + 1);
+            return planner.buildRangePredicates(partitionColumn, boundaries);
+        } catch (SQLException e) {
+            throw new DataTunnelException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * oracle 表按照 extent 计算 ROWID 区间，每个切片只读取自己区间内的 block，避免 ORA_HASH(ROWID) 切片时每个切片都全表扫描。
+     * 没有 extent 信息时返回 null，使用 ORA_HASH(ROWID) 切片。
+     */
+    private String[] planOracleRowIdSplits(
+            Connection conn, JdbcDataTunnelSourceOption sourceOption, String schemaName, String tableName) {
+        String fullTableName = schemaName + "." + tableName;
+        try {
+            StopWatch stopWatch = StopWatch.createStarted();
+            JdbcSplitPlanner planner = new JdbcSplitPlanner(ORACLE, conn);
+            Integer numPartitions = sourceOption.getNumPartitions();
+            if (numPartitions == null || numPartitions <= 0) {
+                long count = planner.estimateRowCount(schemaName, tableName);
+                if (count <= 0) {
+                    count = planner.countRows(fullTableName, null);
+                }
+                numPartitions = computeNumPartitions(count, sourceOption);
+            }
+
+            List<Pair<String, String>> ranges = planner.queryOracleRowIdRanges(schemaName, tableName, numPartitions);
+            stopWatch.stop();
+            if (ranges.isEmpty()) {
+                LogUtils.warn("table {} extents not found, use ORA_HASH(ROWID) to split", fullTableName);
+                return null;
+            }
+
+            LogUtils.info(
+                    "ExecTimes: {}, table {} rowid ranges: {}", stopWatch.formatTime(), fullTableName, ranges.size());
+            return JdbcSplitPlanner.buildRowIdPredicates(ranges);
+        } catch (SQLException e) {
+            throw new DataTunnelException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 表没有数字类型的单字段主键时，使用主键或者唯一索引(支持组合键、字符串、日期类型)采样计算切片边界元组，
+     * 每个切片通过 keyset 条件读取，不需要 OFFSET 扫描。没有唯一键时返回 null，单个切片读取。
+     */
+    private String[] planKeysetSplits(
+            Connection conn,
+            JdbcDataTunnelSourceOption sourceOption,
+            SplitOptions splitOptions,
+            String schemaName,
+            String tableName) {
+        DataSourceType dataSourceType = sourceOption.getDataSourceType();
+        String fullTableName = schemaName + "." + tableName;
+        String[] keys = JdbcDialectUtils.queryUniqueKeys(dataSourceType, schemaName, tableName, conn);
+        if (keys.length == 0) {
+            return null;
+        }
+
+        // 切片条件作用在查询结果上，需要查询字段包含所有键字段
+        String[] columns = sourceOption.getColumns();
+        if (!(columns.length == 1 && "*".equals(columns[0]))) {
+            for (String key : keys) {
+                boolean found =
+                        Arrays.stream(columns).anyMatch(column -> key.equalsIgnoreCase(CommonUtils.cleanQuote(column)));
+                if (!found) {
+                    LogUtils.warn("table {} key column {} not in columns, can not split by keyset", fullTableName, key);
+                    return null;
+                }
+            }
+        }
+
+        String[] quoteKeys = Arrays.stream(keys)
+                .map(key -> JdbcDialectUtils.quoteIdentifier(dataSourceType, key))
+                .toArray(String[]::new);
+        try {
+            StopWatch stopWatch = StopWatch.createStarted();
+            JdbcSplitPlanner planner = new JdbcSplitPlanner(dataSourceType, conn);
+            long estimateCount = planner.estimateRowCount(schemaName, tableName);
+            if (estimateCount <= 0) {
+                estimateCount = splitOptions.recordCount;
+            }
+
+            List<Object[]> rows = planner.sampleRows(
+                    fullTableName, quoteKeys, splitOptions.condition, estimateCount, sourceOption.getSampleSize());
+            List<Object[]> boundaries = JdbcSplitPlanner.computeKeyBoundaries(rows, splitOptions.numPartitions);
+            stopWatch.stop();
+            LogUtils.info(
+                    "ExecTimes: {}, table {} keyset columns: {}, numPartitions: {}",
+                    stopWatch.formatTime(),
+                    fullTableName,
+                    StringUtils.join(keys, ","),
+                    boundaries.size() + 1);
+            return planner.buildKeysetPredicates(quoteKeys, boundaries);
+        } catch (SQLException e) {
+            throw new DataTunnelException(e.getMessage(), e);
+        }
+    }
+
+    private int computeNumPartitions(long count, JdbcDataTunnelSourceOption sourceOption) {
+        int numPartitions = (int) Math.ceil((double) count / sourceOption.getPartitionRecordCount());
+        return Math.max(numPartitions, 1);
+    }
+
+    private void statTable(
+            Connection conn,
+            JdbcDataTunnelSourceOption sourceOption,
+            SplitOptions splitOptions,
+            String schemaName,
+            String tableName) {
+        PreparedStatement stmt = null;
+        try {
+            String partitionColumn = splitOptions.partitionColumn;
+            String lowerBound = splitOptions.lowerBound;
+            String upperBound = splitOptions.upperBound;
+            Integer numPartitions = splitOptions.numPartitions;
             Integer partitionRecordCount = sourceOption.getPartitionRecordCount();
 
             // 如果用户指定分区参数，不需要再统计，大表统计比较耗时
@@ -291,30 +818,7 @@ public class JdbcDataTunnelSource implements DataTunnelSource {
             }
 
             if (StringUtils.isBlank(partitionColumn)) {
-                DataSourceType dataSourceType = sourceOption.getDataSourceType();
-                String[] primaryKeys = JdbcDialectUtils.queryPrimaryKeys(dataSourceType, schemaName, tableName, conn);
-                if (primaryKeys.length == 1) {
-                    String primaryKey = primaryKeys[0];
-                    List<Column> columns = JdbcDialectUtils.queryColumns(dataSourceType, schemaName, tableName, conn);
-                    for (Column column : columns) {
-                        if (primaryKey.equals(column.name())) {
-                            int type = column.jdbcType();
-                            if (type == TINYINT
-                                    || type == SMALLINT
-                                    || type == INTEGER
-                                    || type == BIGINT
-                                    || type == FLOAT
-                                    || type == DOUBLE
-                                    || type == NUMERIC
-                                    || type == DECIMAL) {
-
-                                partitionColumn = primaryKey;
-                                LogUtils.info("自动推测 partitionColumn: {}", primaryKey);
-                                break;
-                            }
-                        }
-                    }
-                }
+                partitionColumn = inferPartitionColumn(conn, sourceOption, schemaName, tableName);
             }
 
             String fullTableName = schemaName + "." + tableName;
@@ -326,7 +830,7 @@ public class JdbcDataTunnelSource implements DataTunnelSource {
                 sql = "select count(1) as num from " + fullTableName;
             }
 
-            String condition = StringUtils.trim(sourceOption.getCondition());
+            String condition = StringUtils.trim(splitOptions.condition);
             if (StringUtils.isNotBlank(condition)) {
                 if (StringUtils.startsWithIgnoreCase(condition, "where")) {
                     sql = sql + " " + condition;
@@ -342,6 +846,7 @@ public class JdbcDataTunnelSource implements DataTunnelSource {
             long count = Long.parseLong(resultSet.getString("num"));
             stopWatch.stop();
             String execTimes = stopWatch.formatTime();
+            splitOptions.recordCount = count;
 
             if (StringUtils.isBlank(partitionColumn)) {
                 LogUtils.warn(
@@ -358,12 +863,12 @@ public class JdbcDataTunnelSource implements DataTunnelSource {
                 if (StringUtils.isBlank(lowerBound)) {
                     String minValue = String.valueOf(resultSet.getObject("min_value"));
                     LogUtils.info("table {} min value: {}", fullTableName, minValue);
-                    sourceOption.setLowerBound(minValue);
+                    splitOptions.lowerBound = minValue;
                 }
                 if (StringUtils.isBlank(upperBound)) {
                     String maxValue = String.valueOf(resultSet.getObject("max_value"));
                     LogUtils.info("table {} max value: {}", fullTableName, maxValue);
-                    sourceOption.setUpperBound(maxValue);
+                    splitOptions.upperBound = maxValue;
                 }
             }
 
@@ -374,12 +879,12 @@ public class JdbcDataTunnelSource implements DataTunnelSource {
                 numPartitions = 1;
             }
 
-            sourceOption.setPartitionColumn(partitionColumn);
-            sourceOption.setNumPartitions(numPartitions);
+            splitOptions.partitionColumn = partitionColumn;
+            splitOptions.numPartitions = numPartitions;
             LogUtils.info(
                     "lowerBound: {}, upperBound: {}, partitionRecordCount: {}, numPartitions: {}",
-                    sourceOption.getLowerBound(),
-                    sourceOption.getUpperBound(),
+                    splitOptions.lowerBound,
+                    splitOptions.upperBound,
                     partitionRecordCount,
                     numPartitions);
         } catch (SQLException e) {
@@ -390,7 +895,11 @@ public class JdbcDataTunnelSource implements DataTunnelSource {
     }
 
     private void statOracleTable(
-            Connection conn, JdbcDataTunnelSourceOption sourceOption, String schemaName, String tableName) {
+            Connection conn,
+            JdbcDataTunnelSourceOption sourceOption,
+            SplitOptions splitOptions,
+            String schemaName,
+            String tableName) {
         PreparedStatement stmt = null;
         try {
             Integer partitionRecordCount = sourceOption.getPartitionRecordCount();
@@ -398,7 +907,7 @@ public class JdbcDataTunnelSource implements DataTunnelSource {
             String sql = "select count(1) as num , max(ORA_HASH(ROWID)) max_value, min(ORA_HASH(ROWID)) min_value "
                     + "from " + fullTableName;
 
-            String condition = StringUtils.trim(sourceOption.getCondition());
+            String condition = StringUtils.trim(splitOptions.condition);
             if (StringUtils.isNotBlank(condition)) {
                 if (StringUtils.startsWithIgnoreCase(condition, "where")) {
                     sql = sql + " " + condition;
@@ -419,23 +928,23 @@ public class JdbcDataTunnelSource implements DataTunnelSource {
 
             String minValue = String.valueOf(resultSet.getObject("min_value"));
             LogUtils.info("table {} min rowid hash value: {}", fullTableName, minValue);
-            sourceOption.setLowerBound(minValue);
+            splitOptions.lowerBound = minValue;
 
             String maxValue = String.valueOf(resultSet.getObject("max_value"));
             LogUtils.info("table {} max rowid hash value: {}", fullTableName, maxValue);
-            sourceOption.setUpperBound(maxValue);
+            splitOptions.upperBound = maxValue;
 
             int numPartitions = (int) Math.ceil((double) count / partitionRecordCount);
             if (numPartitions == 0) {
                 numPartitions = 1;
             }
 
-            sourceOption.setPartitionColumn(ORALCE_ROWID_ALIAS);
-            sourceOption.setNumPartitions(numPartitions);
+            splitOptions.partitionColumn = ORALCE_ROWID_ALIAS;
+            splitOptions.numPartitions = numPartitions;
             LogUtils.info(
                     "lowerBound: {}, upperBound: {}, partitionRecordCount: {}, numPartitions: {}",
-                    sourceOption.getLowerBound(),
-                    sourceOption.getUpperBound(),
+                    splitOptions.lowerBound,
+                    splitOptions.upperBound,
                     partitionRecordCount,
                     numPartitions);
         } catch (SQLException e) {
@@ -445,6 +954,37 @@ public class JdbcDataTunnelSource implements DataTunnelSource {
         }
     }
 
+    // 每个表独立的切片参数，多表并发统计时不修改 sourceOption
+    private static class SplitOptions {
+
+        private String partitionColumn;
+
+        private String lowerBound;
+
+        private String upperBound;
+
+        private Integer numPartitions;
+
+        private long recordCount = -1;
+
+        private String condition;
+
+        // 当前读取的表，不带引号
+        private final String schemaName;
+
+        private final String tableName;
+
+        SplitOptions(JdbcDataTunnelSourceOption sourceOption, Pair<String, String> table) {
+            this.schemaName = CommonUtils.cleanQuote(table.getLeft());
+            this.tableName = CommonUtils.cleanQuote(table.getRight());
+            this.condition = sourceOption.getCondition();
+            this.partitionColumn = sourceOption.getPartitionColumn();
+            this.lowerBound = sourceOption.getLowerBound();
+            this.upperBound = sourceOption.getUpperBound();
+            this.numPartitions = sourceOption.getNumPartitions();
+        }
+    }
+
     @Override
     public Class<? extends DataTunnelSourceOption> getOptionClass() {
         return JdbcDataTunnelSourceOption.class;
@@ -2,6 +2,7 @@ package com.superior.datatunnel.plugin.jdbc;
 
 import com.superior.datatunnel.api.model.BaseSourceOption;
 import com.superior.datatunnel.common.annotation.OptionDesc;
+import com.superior.datatunnel.plugin.jdbc.enums.PartitionStrategy;
 import javax.validation.constraints.NotBlank;
 import lombok.Data;
 
@@ -32,6 +33,16 @@ public class JdbcDataTunnelSourceOption extends BaseSourceOption {
 
     private int fetchsize = 1000;
 
+    @OptionDesc("根据采样数据的平均记录大小自动计算 fetchsize，每次读取数据量接近 fetchBytes，默认：false")
+    private boolean adaptiveFetchsize = false;
+
+    @OptionDesc("adaptiveFetchsize = true 时，每次从数据库读取的目标字节数，默认：8MB")
+    private long fetchBytes = 8 * 1024 * 1024;
+
+    @OptionDesc("流式读取，mysql 使用服务端游标(useCursorFetch)，oracle 设置 defaultRowPrefetch，"
+            + "postgresql 关闭 autocommit 使用游标读取，避免大表读取时 executor 内存溢出，默认：false")
+    private boolean streamingRead = false;
+
     private int queryTimeout = 0;
 
     @OptionDesc("数据过滤条件")
@@ -49,6 +60,32 @@ public class JdbcDataTunnelSourceOption extends BaseSourceOption {
 
     private String upperBound;
 
+    @OptionDesc("切片方式: range(按照 lowerBound 和 upperBound 等宽切分), sample(根据统计信息和采样数据计算切片边界), "
+            + "quantile(通过 NTILE 计算精确分位点作为切片边界)")
+    private PartitionStrategy partitionStrategy = PartitionStrategy.RANGE;
+
+    @OptionDesc("partitionStrategy = sample 或者按照唯一键 keyset 方式切片时，采样记录数量，默认：10000")
+    private int sampleSize = 10000;
+
+    @OptionDesc("多表读取时，driver 端并发统计表信息的线程数，每个线程使用独立的数据库连接，默认：4")
+    private int planningThreads = 4;
+
+    @OptionDesc("增量读取字段，时间类型或者递增的数字类型，只读取上次提交的最大值之后的数据")
+    private String watermarkColumn;
+
+    @OptionDesc("增量读取位置保存文件，支持 hdfs 或者本地路径，sink 写入成功后更新。设置 watermarkColumn 时必须填写")
+    private String watermarkStatePath;
+
+    @OptionDesc("增量读取重叠窗口，数字类型字段为数值，时间类型字段为秒数，用于读取延迟提交的数据，默认：0")
+    private long watermarkOverlap = 0;
+
+    @OptionDesc("列式读取，ResultSet 直接写入 ColumnarBatch，减少逐行转换的 CPU 开销，只支持基本数据类型，默认：false")
+    private boolean vectorizedRead = false;
+
+    @OptionDesc("postgresql 兼容数据库使用 COPY TO STDOUT 二进制格式批量导出，每个切片一个 COPY 语句，"
+            + "只支持 postgresql、greenplum、gaussdws、hashdata，默认：false")
+    private boolean bulkExport = false;
+
     private boolean pushDownPredicate = true;
 
     private boolean pushDownAggregate = true;
@@ -0,0 +1,763 @@
+package com.superior.datatunnel.plugin.jdbc;
+
+import static com.superior.datatunnel.api.DataSourceType.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.superior.datatunnel.api.DataSourceType;
+import com.superior.datatunnel.common.util.JdbcUtils;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 根据数据库统计信息估算表记录数，采样计算切片边界，避免大表执行 count/min/max 全表扫描。
+ * 切片边界按照采样数据的分位数计算，数据倾斜时每个切片的记录数仍然接近。
+ * oracle 表按照 extent 计算 ROWID 区间切片。
+ */
+public class JdbcSplitPlanner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcSplitPlanner.class);
+
+    private final DataSourceType dataSourceType;
+
+    private final Connection conn;
+
+    public JdbcSplitPlanner(DataSourceType dataSourceType, Connection conn) {
+        this.dataSourceType = dataSourceType;
+        this.conn = conn;
+    }
+
+    /**
+     * 从数据库统计信息中获取表记录数，统计信息不存在返回 -1
+     */
+    public long estimateRowCount(String schemaName, String tableName) {
+        String sql;
+        if (dataSourceType == MYSQL || dataSourceType == OCEANBASE) {
+            sql = "select table_rows from information_schema.tables where table_schema = ? and table_name = ?";
+        } else if (dataSourceType == POSTGRESQL
+                || dataSourceType == GREENPLUM
+                || dataSourceType == GAUSSDWS
+                || dataSourceType == HASHDATA) {
+            sql = "select c.reltuples from pg_class c join pg_namespace n on n.oid = c.relnamespace "
+                    + "where n.nspname = ? and c.relname = ?";
+        } else if (dataSourceType == ORACLE || dataSourceType == DAMENG) {
+            sql = "select num_rows from all_tables where owner = ? and table_name = ?";
+        } else if (dataSourceType == SQLSERVER) {
+            sql = "select sum(p.rows) from sys.partitions p join sys.tables t on p.object_id = t.object_id "
+                    + "join sys.schemas s on t.schema_id = s.schema_id "
+                    + "where s.name = ? and t.name = ? and p.index_id in (0, 1)";
+        } else if (dataSourceType == DB2) {
+            sql = "select card from syscat.tables where tabschema = ? and tabname = ?";
+        } else if (dataSourceType == HANA) {
+            sql = "select record_count from m_tables where schema_name = ? and table_name = ?";
+        } else {
+            return -1;
+        }
+
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, unquoteIdentifier(schemaName));
+            stmt.setString(2, unquoteIdentifier(tableName));
+            ResultSet resultSet = stmt.executeQuery();
+            if (resultSet.next()) {
+                BigDecimal value = resultSet.getBigDecimal(1);
+                if (value != null && value.signum() > 0) {
+                    return value.longValue();
+                }
+            }
+            return -1;
+        } catch (SQLException e) {
+            LOG.warn("query table {}.{} statistics failed: {}", schemaName, tableName, e.getMessage());
+            return -1;
+        } finally {
+            JdbcUtils.close(stmt);
+        }
+    }
+
+    /**
+     * 按照 estimateCount 计算采样比例，采样读取 column 的值，返回结果已经排序。
+     */
+    public List<Object> sampleColumnValues(
+            String fullTableName, String column, String condition, long estimateCount, int sampleSize)
+            throws SQLException {
+
+        List<Object> values = Lists.newArrayList();
+        for (Object[] row : sampleRows(fullTableName, new String[] {column}, condition, estimateCount, sampleSize)) {
+            values.add(row[0]);
+        }
+        return values;
+    }
+
+    /**
+     * 按照 estimateCount 计算采样比例，采样读取多个字段的值，返回结果按照 columns 排序。
+     */
+    public List<Object[]> sampleRows(
+            String fullTableName, String[] columns, String condition, long estimateCount, int sampleSize)
+            throws SQLException {
+
+        double percent = estimateCount > 0 ? 100.0 * sampleSize / estimateCount : 100;
+        String columnList = StringUtils.join(columns, ", ");
+        String sql = "select " + columnList + " from " + fullTableName + tableSampleClause(percent) + " where "
+                + StringUtils.join(columns, " is not null and ") + " is not null";
+        String samplePredicate = samplePredicate(percent);
+        if (samplePredicate != null) {
+            sql = sql + " and " + samplePredicate;
+        }
+        sql = appendCondition(sql, condition);
+        // 数据库排序，保证切片边界的顺序和数据库的比较规则(字符集、排序规则)一致
+        sql = sql + " order by " + columnList;
+        LOG.info("sample sql: {}", sql);
+
+        // 统计信息不准确时采样记录可能很多，不能使用 setMaxRows 截断(只保留最小的值)，通过蓄水池采样限制内存中的记录数
+        OrderedReservoir<Object[]> reservoir = new OrderedReservoir<>(sampleSize * 10, new Random(0));
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if (dataSourceType == MYSQL || dataSourceType == OCEANBASE) {
+                // mysql 默认把结果集全部加载到内存，流式读取
+                stmt.setFetchSize(Integer.MIN_VALUE);
+            } else {
+                stmt.setFetchSize(1000);
+            }
+            ResultSet resultSet = stmt.executeQuery();
+            while (resultSet.next()) {
+                Object[] row = new Object[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    row[i] = resultSet.getObject(i + 1);
+                }
+                reservoir.add(row);
+            }
+        } finally {
+            JdbcUtils.close(stmt);
+        }
+        if (reservoir.count() > reservoir.capacity()) {
+            LOG.info("sample {} of {} rows from {}", reservoir.capacity(), reservoir.count(), fullTableName);
+        }
+        return reservoir.toList();
+    }
+
+    /**
+     * 蓄水池采样，最多保留 capacity 条记录，结果保持输入顺序
+     */
+    static class OrderedReservoir<T> {
+
+        private final int capacity;
+
+        private final Random random;
+
+        private final List<Pair<Long, T>> items = Lists.newArrayList();
+
+        private long count = 0;
+
+        OrderedReservoir(int capacity, Random random) {
+            this.capacity = Math.max(1, capacity);
+            this.random = random;
+        }
+
+        void add(T item) {
+            if (items.size() < capacity) {
+                items.add(Pair.of(count, item));
+            } else {
+                long index = (long) (random.nextDouble() * (count + 1));
+                if (index < capacity) {
+                    items.set((int) index, Pair.of(count, item));
+                }
+            }
+            count++;
+        }
+
+        int capacity() {
+            return capacity;
+        }
+
+        long count() {
+            return count;
+        }
+
+        List<T> toList() {
+            List<Pair<Long, T>> sorted = Lists.newArrayList(items);
+            sorted.sort((a, b) -> Long.compare(a.getLeft(), b.getLeft()));
+            List<T> result = Lists.newArrayListWithCapacity(sorted.size());
+            for (Pair<Long, T> item : sorted) {
+                result.add(item.getRight());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * mysql 不支持 TABLESAMPLE，rand() 过滤采样仍然需要全表扫描。从 information_schema.column_statistics 读取
+     * ANALYZE TABLE ... UPDATE HISTOGRAM 生成的直方图(mysql 8.0+)，按照累计频率计算切片边界，不需要读取表数据。
+     * 只支持数字和日期类型字段，没有直方图返回 null
+     */
+    public List<Object> queryMySqlHistogramBoundaries(
+            String schemaName, String tableName, String column, int numPartitions) {
+        String sql = "select histogram from information_schema.column_statistics "
+                + "where schema_name = ? and table_name = ? and column_name = ?";
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(sql);
+            stmt.setString(1, unquoteIdentifier(schemaName));
+            stmt.setString(2, unquoteIdentifier(tableName));
+            stmt.setString(3, unquoteIdentifier(column));
+            ResultSet resultSet = stmt.executeQuery();
+            if (!resultSet.next()) {
+                return null;
+            }
+
+            JsonNode histogram = new ObjectMapper().readTree(resultSet.getString(1));
+            String dataType = histogram.path("data-type").asText();
+            boolean singleton = "singleton".equals(histogram.path("histogram-type").asText());
+            List<Object> values = Lists.newArrayList();
+            List<Double> frequencies = Lists.newArrayList();
+            for (JsonNode bucket : histogram.path("buckets")) {
+                // singleton: [value, cumulative_frequency], equi-height: [lower, upper, cumulative_frequency, ndv]
+                Object value = parseHistogramValue(dataType, bucket.get(singleton ? 0 : 1));
+                if (value == null) {
+                    return null;
+                }
+                values.add(value);
+                frequencies.add(bucket.get(singleton ? 1 : 2).asDouble());
+            }
+            return values.isEmpty() ? null : computeHistogramBoundaries(values, frequencies, numPartitions);
+        } catch (SQLException | IOException | IllegalArgumentException e) {
+            LOG.warn("query {}.{} column {} histogram failed: {}", schemaName, tableName, column, e.getMessage());
+            return null;
+        } finally {
+            JdbcUtils.close(stmt);
+        }
+    }
+
+    private static Object parseHistogramValue(String dataType, JsonNode node) {
+        switch (dataType) {
+            case "int":
+                return node.asLong();
+            case "uint":
+            case "decimal":
+                return new BigDecimal(node.asText());
+            case "double":
+                return node.asDouble();
+            case "date":
+                return java.sql.Date.valueOf(node.asText());
+            case "datetime":
+                return Timestamp.valueOf(node.asText());
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 直方图每个桶的上界和累计频率(已排序)，按照累计频率计算 numPartitions - 1 个分位点，去除重复值
+     */
+    public static List<Object> computeHistogramBoundaries(
+            List<Object> values, List<Double> cumulativeFrequencies, int numPartitions) {
+        List<Object> boundaries = Lists.newArrayList();
+        int size = values.size();
+        if (size == 0 || numPartitions <= 1) {
+            return boundaries;
+        }
+
+        // null 值不在直方图中，最后一个桶的累计频率小于 1
+        double total = cumulativeFrequencies.get(size - 1);
+        Object last = null;
+        int index = 0;
+        for (int i = 1; i < numPartitions; i++) {
+            double target = total * i / numPartitions;
+            while (index < size - 1 && cumulativeFrequencies.get(index) < target) {
+                index++;
+            }
+            Object value = values.get(index);
+            if (!value.equals(last)) {
+                boundaries.add(value);
+                last = value;
+            }
+        }
+        return boundaries;
+    }
+
+    /**
+     * mysql 8.0 之前的版本不支持窗口函数，oceanbase mysql 模式和版本相关，执行一次 NTILE 查询判断是否支持
+     */
+    public boolean supportsNtile() {
+        if (dataSourceType != MYSQL && dataSourceType != OCEANBASE) {
+            return true;
+        }
+
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement("select ntile(2) over (order by 1) as dt_tile");
+            stmt.executeQuery().close();
+            return true;
+        } catch (SQLException e) {
+            LOG.warn("database not support ntile: {}", e.getMessage());
+            return false;
+        } finally {
+            JdbcUtils.close(stmt);
+        }
+    }
+
+    /**
+     * 通过 NTILE 窗口函数把数据按照 column 排序分成 numPartitions 组，返回第2组到最后一组的最小值作为切片边界。
+     * 需要数据库对全表排序，结果精确，适合 column 上有索引或者对切片均匀要求高的场景。
+     */
+    public List<Object> queryQuantileBoundaries(
+            String fullTableName, String column, String condition, int numPartitions) throws SQLException {
+
+        String innerSql = "select " + column + ", ntile(" + numPartitions + ") over (order by " + column
+                + ") as dt_tile from " + fullTableName + " where " + column + " is not null";
+        innerSql = appendCondition(innerSql, condition);
+        String sql = "select min(" + column + ") as min_value, dt_tile from (" + innerSql
+                + ") tdl_tile group by dt_tile order by dt_tile";
+        LOG.info("quantile sql: {}", sql);
+
+        List<Object> boundaries = Lists.newArrayList();
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(sql);
+            ResultSet resultSet = stmt.executeQuery();
+            Object last = null;
+            boolean first = true;
+            while (resultSet.next()) {
+                Object value = resultSet.getObject(1);
+                if (first) {
+                    first = false;
+                } else if (value != null && !value.equals(last)) {
+                    boundaries.add(value);
+                    last = value;
+                }
+            }
+        } finally {
+            JdbcUtils.close(stmt);
+        }
+        return boundaries;
+    }
+
+    /**
+     * 查询满足条件的 column 最大值，没有数据返回 null
+     */
+    public Object queryMaxValue(String fullTableName, String column, String condition) throws SQLException {
+        String sql = appendCondition("select max(" + column + ") as max_value from " + fullTableName, condition);
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(sql);
+            ResultSet resultSet = stmt.executeQuery();
+            resultSet.next();
+            return normalizeValue(resultSet.getObject(1));
+        } finally {
+            JdbcUtils.close(stmt);
+        }
+    }
+
+    /**
+     * 读取 sampleRows 条记录，计算平均每条记录的字节数，用于计算 fetchsize，没有数据返回 -1
+     */
+    public double estimateAvgRowSize(String sql, int sampleRows) throws SQLException {
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(sql);
+            stmt.setMaxRows(sampleRows);
+            stmt.setFetchSize(sampleRows);
+            ResultSet resultSet = stmt.executeQuery();
+            int columnCount = resultSet.getMetaData().getColumnCount();
+            long bytes = 0;
+            int rows = 0;
+            while (resultSet.next() && rows < sampleRows) {
+                for (int i = 1; i <= columnCount; i++) {
+                    bytes += estimateValueSize(resultSet.getObject(i));
+                }
+                rows++;
+            }
+            return rows == 0 ? -1 : (double) bytes / rows;
+        } finally {
+            JdbcUtils.close(stmt);
+        }
+    }
+
+    private static int estimateValueSize(Object value) {
+        if (value == null) {
+            return 1;
+        } else if (value instanceof String) {
+            return ((String) value).length();
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        } else if (value instanceof BigDecimal) {
+            return 16;
+        } else if (value instanceof Number || value instanceof java.util.Date) {
+            return 8;
+        } else if (value instanceof Boolean) {
+            return 1;
+        } else {
+            return String.valueOf(value).length();
+        }
+    }
+
+    /**
+     * 统计满足条件的记录数
+     */
+    public long countRows(String fullTableName, String condition) throws SQLException {
+        String sql = appendCondition("select count(1) as num from " + fullTableName, condition);
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(sql);
+            ResultSet resultSet = stmt.executeQuery();
+            resultSet.next();
+            return resultSet.getLong(1);
+        } finally {
+            JdbcUtils.close(stmt);
+        }
+    }
+
+    /**
+     * 从 DBA_EXTENTS(没有权限时使用 USER_EXTENTS) 读取表的 extent 信息，按照 block 数量把相邻的 extent 合并为 numChunks 个 ROWID 区间，
+     * 和 DBMS_PARALLEL_EXECUTE.CREATE_CHUNKS_BY_ROWID 方式相同。每个区间只扫描自己的 block，不需要每个切片都全表扫描。
+     * 没有 extent 信息(例如索引组织表、没有权限)时返回空列表。
+     */
+    public List<Pair<String, String>> queryOracleRowIdRanges(String schemaName, String tableName, int numChunks) {
+        String owner = toOracleName(schemaName);
+        String table = toOracleName(tableName);
+        List<Object[]> extents;
+        try {
+            extents = queryOracleExtents(
+                    "dba_extents e, dba_objects o",
+                    "e.owner = ? and e.segment_name = ? and o.owner = e.owner and ",
+                    owner,
+                    table);
+        } catch (SQLException e) {
+            LOG.warn("query dba_extents failed, use user_extents: {}", e.getMessage());
+            try {
+                extents = queryOracleExtents("user_extents e, user_objects o", "e.segment_name = ? and ", null, table);
+            } catch (SQLException ex) {
+                LOG.warn("query user_extents failed: {}", ex.getMessage());
+                return Lists.newArrayList();
+            }
+        }
+
+        List<Pair<String, String>> ranges = Lists.newArrayList();
+        if (extents.isEmpty()) {
+            return ranges;
+        }
+
+        long totalBlocks = 0;
+        for (Object[] extent : extents) {
+            totalBlocks += (Long) extent[2];
+        }
+        long chunkBlocks = Math.max(1, (long) Math.ceil((double) totalBlocks / Math.max(numChunks, 1)));
+
+        String minRowId = null;
+        long blocks = 0;
+        for (int i = 0; i < extents.size(); i++) {
+            Object[] extent = extents.get(i);
+            if (minRowId == null) {
+                minRowId = (String) extent[0];
+            }
+            blocks += (Long) extent[2];
+            if (blocks >= chunkBlocks || i == extents.size() - 1) {
+                ranges.add(Pair.of(minRowId, (String) extent[1]));
+                minRowId = null;
+                blocks = 0;
+            }
+        }
+        return ranges;
+    }
+
+    private List<Object[]> queryOracleExtents(String from, String where, String owner, String table)
+            throws SQLException {
+        String sql = "select dbms_rowid.rowid_create(1, o.data_object_id, e.relative_fno, e.block_id, 0) min_rowid, "
+                + "dbms_rowid.rowid_create(1, o.data_object_id, e.relative_fno, e.block_id + e.blocks - 1, 32767) "
+                + "max_rowid, e.blocks from " + from + " where " + where
+                + "e.segment_type like 'TABLE%' and o.object_name = e.segment_name and o.object_type like 'TABLE%' "
+                + "and nvl(o.subobject_name, '-') = nvl(e.partition_name, '-') and o.data_object_id is not null "
+                + "order by o.data_object_id, e.relative_fno, e.block_id";
+        LOG.info("extents sql: {}", sql);
+
+        List<Object[]> extents = Lists.newArrayList();
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(sql);
+            int index = 1;
+            if (owner != null) {
+                stmt.setString(index++, owner);
+            }
+            stmt.setString(index, table);
+            ResultSet resultSet = stmt.executeQuery();
+            while (resultSet.next()) {
+                extents.add(new Object[] {resultSet.getString(1), resultSet.getString(2), resultSet.getLong(3)});
+            }
+        } finally {
+            JdbcUtils.close(stmt);
+        }
+        return extents;
+    }
+
+    /**
+     * 根据 ROWID 区间生成每个切片的过滤条件
+     */
+    public static String[] buildRowIdPredicates(List<Pair<String, String>> ranges) {
+        String[] predicates = new String[ranges.size()];
+        for (int i = 0; i < ranges.size(); i++) {
+            Pair<String, String> range = ranges.get(i);
+            predicates[i] =
+                    "ROWID BETWEEN CHARTOROWID('" + range.getLeft() + "') AND CHARTOROWID('" + range.getRight() + "')";
+        }
+        return predicates;
+    }
+
+    /**
+     * 从已排序的采样数据中计算 numPartitions - 1 个分位点，去除重复值
+     */
+    public static List<Object> computeBoundaries(List<Object> sortedValues, int numPartitions) {
+        List<Object> boundaries = Lists.newArrayList();
+        int size = sortedValues.size();
+        if (size == 0 || numPartitions <= 1) {
+            return boundaries;
+        }
+
+        Object last = null;
+        for (int i = 1; i < numPartitions; i++) {
+            int index = (int) ((long) i * size / numPartitions);
+            Object value = sortedValues.get(Math.min(index, size - 1));
+            if (!value.equals(last)) {
+                boundaries.add(value);
+                last = value;
+            }
+        }
+        return boundaries;
+    }
+
+    /**
+     * 从已排序的采样数据中计算 numPartitions - 1 个分位点元组，去除重复值
+     */
+    public static List<Object[]> computeKeyBoundaries(List<Object[]> sortedRows, int numPartitions) {
+        List<Object[]> boundaries = Lists.newArrayList();
+        int size = sortedRows.size();
+        if (size == 0 || numPartitions <= 1) {
+            return boundaries;
+        }
+
+        Object[] last = null;
+        for (int i = 1; i < numPartitions; i++) {
+            int index = (int) ((long) i * size / numPartitions);
+            Object[] value = sortedRows.get(Math.min(index, size - 1));
+            if (!Arrays.equals(value, last)) {
+                boundaries.add(value);
+                last = value;
+            }
+        }
+        return boundaries;
+    }
+
+    /**
+     * keyset 方式生成每个切片的过滤条件: (k1, k2) > (?, ?) and (k1, k2) <= (?, ?)。
+     * 部分数据库不支持行值比较，展开为 k1 > ? or (k1 = ? and k2 > ?) 形式。
+     */
+    public String[] buildKeysetPredicates(String[] keys, List<Object[]> boundaries) {
+        if (boundaries.isEmpty()) {
+            return new String[] {"1 = 1"};
+        }
+
+        String[] predicates = new String[boundaries.size() + 1];
+        predicates[0] = keysetCompare(keys, boundaries.get(0), false);
+        for (int i = 1; i < boundaries.size(); i++) {
+            predicates[i] = keysetCompare(keys, boundaries.get(i - 1), true) + " and "
+                    + keysetCompare(keys, boundaries.get(i), false);
+        }
+        predicates[boundaries.size()] = keysetCompare(keys, boundaries.get(boundaries.size() - 1), true);
+        return predicates;
+    }
+
+    // greater = true: keys > values, greater = false: keys <= values
+    private String keysetCompare(String[] keys, Object[] values, boolean greater) {
+        List<String> terms = Lists.newArrayList();
+        for (int i = 0; i < keys.length; i++) {
+            StringBuilder term = new StringBuilder();
+            for (int j = 0; j < i; j++) {
+                term.append(keys[j])
+                        .append(" = ")
+                        .append(toSqlLiteral(values[j]))
+                        .append(" and ");
+            }
+            term.append(keys[i]).append(greater ? " > " : " < ").append(toSqlLiteral(values[i]));
+            terms.add(term.toString());
+        }
+
+        if (!greater) {
+            StringBuilder term = new StringBuilder();
+            for (int i = 0; i < keys.length; i++) {
+                if (i > 0) {
+                    term.append(" and ");
+                }
+                term.append(keys[i]).append(" = ").append(toSqlLiteral(values[i]));
+            }
+            terms.add(term.toString());
+        }
+        return "((" + StringUtils.join(terms, ") or (") + "))";
+    }
+
+    /**
+     * 根据切片边界生成每个切片的过滤条件，第一个切片包含 null 值
+     */
+    public String[] buildRangePredicates(String column, List<Object> boundaries) {
+        if (boundaries.isEmpty()) {
+            return new String[] {"1 = 1"};
+        }
+
+        String[] predicates = new String[boundaries.size() + 1];
+        predicates[0] = column + " < " + toSqlLiteral(boundaries.get(0)) + " or " + column + " is null";
+        for (int i = 1; i < boundaries.size(); i++) {
+            predicates[i] = column + " >= " + toSqlLiteral(boundaries.get(i - 1)) + " and " + column + " < "
+                    + toSqlLiteral(boundaries.get(i));
+        }
+        predicates[boundaries.size()] = column + " >= " + toSqlLiteral(boundaries.get(boundaries.size() - 1));
+        return predicates;
+    }
+
+    /**
+     * 增量读取下界: 上次提交的值减去 overlap，数字类型减去 overlap，时间类型减去 overlap 秒
+     */
+    public static Object subtractOverlap(Object currentValue, String lastValue, long overlap) {
+        if (currentValue instanceof Number) {
+            return new BigDecimal(lastValue).subtract(BigDecimal.valueOf(overlap));
+        } else if (currentValue instanceof Timestamp) {
+            Timestamp timestamp = Timestamp.valueOf(lastValue);
+            Timestamp lowerValue = new Timestamp(timestamp.getTime() - overlap * 1000);
+            lowerValue.setNanos(timestamp.getNanos());
+            return lowerValue;
+        } else if (currentValue instanceof java.sql.Date) {
+            LocalDate date = java.sql.Date.valueOf(lastValue).toLocalDate();
+            return java.sql.Date.valueOf(date.minusDays(overlap / 86400));
+        } else {
+            return lastValue;
+        }
+    }
+
+    public static String formatValue(Object value) {
+        value = normalizeValue(value);
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        return String.valueOf(value);
+    }
+
+    static Object normalizeValue(Object value) {
+        if (value instanceof oracle.sql.TIMESTAMP) {
+            // oracle getObject 返回 oracle.sql.TIMESTAMP，toString 不是 Timestamp.valueOf、TO_TIMESTAMP 支持的格式
+            try {
+                return ((oracle.sql.TIMESTAMP) value).timestampValue();
+            } catch (SQLException e) {
+                throw new IllegalArgumentException("convert oracle timestamp failed: " + e.getMessage(), e);
+            }
+        } else if (value instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime) value);
+        } else if (value instanceof LocalDate) {
+            return java.sql.Date.valueOf((LocalDate) value);
+        }
+        return value;
+    }
+
+    public String toSqlLiteral(Object value) {
+        value = normalizeValue(value);
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        } else if (value instanceof Number) {
+            return value.toString();
+        } else if (value instanceof Timestamp) {
+            if (dataSourceType == ORACLE || dataSourceType == DAMENG) {
+                return "TO_TIMESTAMP('" + value + "', 'YYYY-MM-DD HH24:MI:SS.FF')";
+            }
+            return "'" + value + "'";
+        } else if (value instanceof java.sql.Date) {
+            if (dataSourceType == ORACLE || dataSourceType == DAMENG) {
+                return "DATE '" + value + "'";
+            }
+            return "'" + value + "'";
+        } else {
+            return "'" + StringUtils.replace(String.valueOf(value), "'", "''") + "'";
+        }
+    }
+
+    private String tableSampleClause(double percent) {
+        if (percent >= 100) {
+            return "";
+        }
+
+        String value = String.format(Locale.ROOT, "%.6f", Math.max(percent, 0.000001));
+        if (dataSourceType == POSTGRESQL || dataSourceType == DB2 || dataSourceType == HANA) {
+            return " TABLESAMPLE SYSTEM (" + value + ")";
+        } else if (dataSourceType == ORACLE || dataSourceType == DAMENG) {
+            return " SAMPLE BLOCK (" + value + ")";
+        } else if (dataSourceType == SQLSERVER) {
+            return " TABLESAMPLE (" + value + " PERCENT)";
+        } else {
+            return "";
+        }
+    }
+
+    // 不支持 TABLESAMPLE 的数据库，通过随机数过滤采样
+    private String samplePredicate(double percent) {
+        if (percent >= 100) {
+            return null;
+        }
+
+        String ratio = String.format(Locale.ROOT, "%.8f", percent / 100);
+        if (dataSourceType == MYSQL || dataSourceType == OCEANBASE) {
+            return "rand() < " + ratio;
+        } else if (dataSourceType == GREENPLUM || dataSourceType == GAUSSDWS || dataSourceType == HASHDATA) {
+            return "random() < " + ratio;
+        } else {
+            return null;
+        }
+    }
+
+    public static String appendCondition(String sql, String condition) {
+        condition = StringUtils.trim(condition);
+        if (StringUtils.isBlank(condition)) {
+            return sql;
+        }
+
+        if (StringUtils.startsWithIgnoreCase(condition, "where")) {
+            condition = StringUtils.trim(StringUtils.substring(condition, 5));
+        }
+        if (StringUtils.containsIgnoreCase(sql, " where ")) {
+            return sql + " and (" + condition + ")";
+        } else {
+            return sql + " where " + condition;
+        }
+    }
+
+    // oracle 没有引号的标识符保存为大写
+    private static String toOracleName(String name) {
+        String value = unquoteIdentifier(name);
+        if (value.equals(name)) {
+            return StringUtils.upperCase(name);
+        }
+        return value;
+    }
+
+    private static String unquoteIdentifier(String name) {
+        if (StringUtils.length(name) >= 2) {
+            char first = name.charAt(0);
+            char last = name.charAt(name.length() - 1);
+            if ((first == '"' && last == '"') || (first == '`' && last == '`') || (first == '[' && last == ']')) {
+                return name.substring(1, name.length() - 1);
+            }
+        }
+        return name;
+    }
+}
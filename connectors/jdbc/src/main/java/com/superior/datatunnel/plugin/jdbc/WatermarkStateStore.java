@@ -0,0 +1,74 @@
+package com.superior.datatunnel.plugin.jdbc;
+
+import com.superior.datatunnel.api.DataTunnelException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Options;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * 增量读取位置保存在 hdfs 或者本地文件中，每行一个表: 表名=最大值。
+ * 先写临时文件再覆盖重命名，sink 写入失败时不会更新读取位置。
+ */
+public class WatermarkStateStore {
+
+    private final Path path;
+
+    private final Configuration hadoopConf;
+
+    public WatermarkStateStore(String statePath, Configuration hadoopConf) {
+        this.path = new Path(statePath);
+        this.hadoopConf = hadoopConf;
+    }
+
+    public Map<String, String> load() {
+        Map<String, String> values = new HashMap<>();
+        try {
+            FileSystem fs = path.getFileSystem(hadoopConf);
+            if (!fs.exists(path)) {
+                return values;
+            }
+
+            Properties properties = new Properties();
+            try (InputStream input = fs.open(path)) {
+                properties.load(new InputStreamReader(input, StandardCharsets.UTF_8));
+            }
+            for (String key : properties.stringPropertyNames()) {
+                values.put(key, properties.getProperty(key));
+            }
+            return values;
+        } catch (IOException e) {
+            throw new DataTunnelException("读取增量位置文件失败: " + path + ", " + e.getMessage(), e);
+        }
+    }
+
+    public void commit(Map<String, String> watermarks) throws IOException {
+        Map<String, String> values = load();
+        values.putAll(watermarks);
+
+        Properties properties = new Properties();
+        properties.putAll(values);
+
+        FileSystem fs = path.getFileSystem(hadoopConf);
+        // 没有 scheme 的路径，FileContext 无法确定文件系统
+        Path qualifiedPath = fs.makeQualified(path);
+        Path tmpPath = new Path(
+                qualifiedPath.getParent(), "." + qualifiedPath.getName() + "." + System.currentTimeMillis() + ".tmp");
+        try (OutputStream output = fs.create(tmpPath, true)) {
+            properties.store(new OutputStreamWriter(output, StandardCharsets.UTF_8), "datatunnel watermark");
+        }
+
+        FileContext fileContext = FileContext.getFileContext(qualifiedPath.toUri(), hadoopConf);
+        fileContext.rename(tmpPath, qualifiedPath, Options.Rename.OVERWRITE);
+    }
+}
@@ -0,0 +1,10 @@
+package com.superior.datatunnel.plugin.jdbc.enums;
+
+public enum PartitionStrategy {
+    // spark jdbc 默认切片方式，按照 lowerBound 和 upperBound 等宽切分
+    RANGE,
+    // 根据数据库统计信息估算记录数，采样计算切片边界
+    SAMPLE,
+    // 通过 NTILE 窗口函数在数据库中计算精确的分位点作为切片边界
+    QUANTILE;
+}
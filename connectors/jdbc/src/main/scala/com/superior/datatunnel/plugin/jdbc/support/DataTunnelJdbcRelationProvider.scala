@@ -61,6 +61,8 @@ class DataTunnelJdbcRelationProvider extends JdbcRelationProvider with Logging {
         } else if (
           dataSourceType.equalsIgnoreCase("MYSQL")
           || dataSourceType.equalsIgnoreCase("OCEANBASE")
+          || dataSourceType.equalsIgnoreCase("SQLSERVER")
+          || dataSourceType.equalsIgnoreCase("ORACLE")
         ) {
           databaseDialect.bulkInsertTable(
             conn,
@@ -86,7 +88,7 @@ class DataTunnelJdbcRelationProvider extends JdbcRelationProvider with Logging {
               ) {
                 // In this case, we should truncate table and then load.
                 truncateTable(conn, options)
-                val tableSchema = SparkJdbcUtils.getSchemaOption(conn, options)
+                val tableSchema = JdbcDialectUtils.getSchemaOption(conn, options)
                 databaseDialect.saveTable(
                   df,
                   tableSchema,
@@ -105,6 +107,12 @@ class DataTunnelJdbcRelationProvider extends JdbcRelationProvider with Logging {
                   isCaseSensitive,
                   options
                 )
+                JdbcMetadataCache.invalidate(
+                  conn,
+                  parameters.getOrElse("schemaName", null),
+                  parameters.getOrElse("tableName", options.table),
+                  options.table
+                )
                 databaseDialect.saveTable(
                   df,
                   Some(df.schema),
@@ -116,7 +124,7 @@ class DataTunnelJdbcRelationProvider extends JdbcRelationProvider with Logging {
               }
 
             case SaveMode.Append =>
-              val tableSchema = SparkJdbcUtils.getSchemaOption(conn, options)
+              val tableSchema = JdbcDialectUtils.getSchemaOption(conn, options)
               databaseDialect.saveTable(
                 df,
                 tableSchema,
@@ -138,6 +146,12 @@ class DataTunnelJdbcRelationProvider extends JdbcRelationProvider with Logging {
           }
         } else {
           createTable(conn, options.table, df.schema, isCaseSensitive, options)
+          JdbcMetadataCache.invalidate(
+            conn,
+            parameters.getOrElse("schemaName", null),
+            parameters.getOrElse("tableName", options.table),
+            options.table
+          )
           databaseDialect.saveTable(
             df,
             Some(df.schema),
@@ -150,6 +164,7 @@ class DataTunnelJdbcRelationProvider extends JdbcRelationProvider with Logging {
       }
     } finally {
       conn.close()
+      JdbcMetadataCache.logStats()
     }
 
     createRelation(sqlContext, parameters)
@@ -0,0 +1,143 @@
+package com.superior.datatunnel.plugin.jdbc.support
+
+import com.gitee.melin.bee.util.JdbcUtils
+import com.superior.datatunnel.api.DataSourceType
+import io.github.melin.jobserver.spark.api.LogUtils
+import org.apache.commons.lang3.StringUtils
+import org.apache.spark.internal.Logging
+import org.apache.spark.sql.jdbc.JdbcDialect
+
+import java.sql.{Connection, DatabaseMetaData, SQLException}
+import java.util.UUID
+
+/** exactlyOnce 写入时，每个分区在写入数据的同一个事务中向提交日志表插入 (job_id, partition_id)，主键保证同一个分区只能提交一次。
+  * task 重试或者推测执行时，已经提交的分区直接跳过，未提交的分区事务回滚后重新写入。
+  */
+case class JdbcCommitLog(table: String, jobId: String) extends Logging {
+
+  /** 在当前事务中登记分区，分区已经被其它 attempt 提交时回滚事务并返回 false */
+  def register(conn: Connection, partitionId: Int, attempt: Int): Boolean = {
+    val stmt = conn.prepareStatement(
+      s"INSERT INTO $table (job_id, partition_id, attempt, commit_time) VALUES (?, ?, ?, ?)"
+    )
+    try {
+      stmt.setString(1, jobId)
+      stmt.setInt(2, partitionId)
+      stmt.setInt(3, attempt)
+      stmt.setTimestamp(4, new java.sql.Timestamp(System.currentTimeMillis()))
+      stmt.executeUpdate()
+      true
+    } catch {
+      case e: SQLException =>
+        conn.rollback()
+        if (isCommitted(conn, partitionId)) {
+          logInfo(s"partition $partitionId of job $jobId already committed, skip attempt $attempt")
+          false
+        } else {
+          throw e
+        }
+    } finally {
+      JdbcUtils.closeStatement(stmt)
+    }
+  }
+
+  private def isCommitted(conn: Connection, partitionId: Int): Boolean = {
+    val stmt = conn.prepareStatement(s"SELECT 1 FROM $table WHERE job_id = ? AND partition_id = ?")
+    try {
+      stmt.setString(1, jobId)
+      stmt.setInt(2, partitionId)
+      val rs = stmt.executeQuery()
+      try rs.next()
+      finally rs.close()
+    } finally {
+      JdbcUtils.closeStatement(stmt)
+    }
+  }
+
+  /** 写入完成后只删除其它任务超过保留时间的提交日志。当前任务的日志需要保留，还没有执行 register 的推测执行或者僵尸 attempt
+    * 之后仍然可能提交，删除后会重复写入分区
+    */
+  def cleanup(conn: Connection): Unit = {
+    val expireTime = System.currentTimeMillis() - JdbcCommitLog.RETENTION_MILLIS
+    val stmt = conn.prepareStatement(s"DELETE FROM $table WHERE job_id <> ? AND commit_time < ?")
+    try {
+      stmt.setString(1, jobId)
+      stmt.setTimestamp(2, new java.sql.Timestamp(expireTime))
+      val count = stmt.executeUpdate()
+      if (count > 0) {
+        logInfo(s"delete $count expired commit logs from $table")
+      }
+    } finally {
+      JdbcUtils.closeStatement(stmt)
+    }
+  }
+}
+
+object JdbcCommitLog {
+
+  private val DEFAULT_TABLE_NAME = "datatunnel_commit_log"
+
+  // 其它任务的提交日志保留 7 天
+  private val RETENTION_MILLIS = 7L * 24 * 60 * 60 * 1000
+
+  /** driver 端创建提交日志表(不存在时)，默认和目标表在同一个 schema 下，每次写入生成新的 jobId */
+  def prepare(
+      conn: Connection,
+      targetTable: String,
+      commitLogTable: String,
+      dataSourceType: DataSourceType,
+      jdbcDialect: JdbcDialect
+  ): JdbcCommitLog = {
+    val table = if (StringUtils.isNotBlank(commitLogTable)) {
+      commitLogTable
+    } else {
+      val items = StringUtils.split(targetTable, ".")
+      items(items.length - 1) = jdbcDialect.quoteIdentifier(DEFAULT_TABLE_NAME)
+      items.mkString(".")
+    }
+
+    if (!tableExists(conn, table, dataSourceType)) {
+      val timestampType = if (dataSourceType == DataSourceType.SQLSERVER) "DATETIME2" else "TIMESTAMP"
+      val sql = s"CREATE TABLE $table (job_id VARCHAR(64) NOT NULL, partition_id INT NOT NULL, " +
+        s"attempt INT NOT NULL, commit_time $timestampType NOT NULL, PRIMARY KEY (job_id, partition_id))"
+      LogUtils.info(s"create commit log table: $sql")
+      val statement = conn.createStatement()
+      try {
+        statement.execute(sql)
+      } finally {
+        JdbcUtils.closeStatement(statement)
+      }
+    }
+
+    JdbcCommitLog(table, UUID.randomUUID().toString)
+  }
+
+  private def tableExists(conn: Connection, table: String, dataSourceType: DataSourceType): Boolean = {
+    val metaData = conn.getMetaData
+    val items = StringUtils.split(table, ".")
+    val schemaName = if (items.length > 1) toStoredName(metaData, items(items.length - 2)) else null
+    val tableName = toStoredName(metaData, items(items.length - 1))
+    val rs =
+      if (dataSourceType == DataSourceType.MYSQL || dataSourceType == DataSourceType.OCEANBASE) {
+        metaData.getTables(schemaName, null, tableName, null)
+      } else {
+        metaData.getTables(null, schemaName, tableName, null)
+      }
+    try rs.next()
+    finally JdbcUtils.closeResultSet(rs)
+  }
+
+  // 带引号的标识符保持原样，不带引号的标识符按照数据库保存的大小写转换
+  private def toStoredName(metaData: DatabaseMetaData, identifier: String): String = {
+    val name = identifier.trim
+    if (name.length > 1 && "\"`[".indexOf(name.charAt(0)) >= 0) {
+      name.substring(1, name.length - 1)
+    } else if (metaData.storesUpperCaseIdentifiers()) {
+      name.toUpperCase
+    } else if (metaData.storesLowerCaseIdentifiers()) {
+      name.toLowerCase
+    } else {
+      name
+    }
+  }
+}
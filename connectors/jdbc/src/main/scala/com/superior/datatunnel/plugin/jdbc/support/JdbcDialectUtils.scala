@@ -4,7 +4,8 @@ import com.gitee.melin.bee.util.JdbcUtils
 import com.google.common.collect.Lists
 import com.superior.datatunnel.api.{DataSourceType, DataTunnelException}
 import com.superior.datatunnel.plugin.jdbc.support.dialect._
-import org.apache.spark.sql.execution.datasources.jdbc.JDBCOptions
+import com.superior.datatunnel.common.util.{JdbcUtils => CommonJdbcUtils}
+import org.apache.spark.sql.execution.datasources.jdbc.{JDBCOptions, JdbcOptionsInWrite, JdbcUtils => SparkJdbcUtils}
 import org.apache.spark.sql.jdbc.JdbcDialect
 import org.apache.spark.sql.types.{StructField, StructType}
 
@@ -25,6 +26,10 @@ object JdbcDialectUtils {
       || dataSourceType == DataSourceType.HASHDATA
     ) {
       new PostgreSqlDatabaseDialect(options, jdbcDialect, dataSourceType)
+    } else if (dataSourceType == DataSourceType.SQLSERVER) {
+      new SqlServerDatabaseDialect(options, jdbcDialect, dataSourceType)
+    } else if (dataSourceType == DataSourceType.ORACLE) {
+      new OracleDatabaseDialect(options, jdbcDialect, dataSourceType)
     } else {
       new MergeDatabaseDialect(options, jdbcDialect, dataSourceType)
     }
@@ -45,6 +50,19 @@ object JdbcDialectUtils {
       schemaName: String,
       tableName: String,
       conn: Connection
+  ): Array[String] = {
+    JdbcMetadataCache
+      .get(conn, "primaryKeys", schemaName, tableName) {
+        loadPrimaryKeys(dataSourceType, schemaName, tableName, conn)
+      }
+      .clone()
+  }
+
+  private def loadPrimaryKeys(
+      dataSourceType: DataSourceType,
+      schemaName: String,
+      tableName: String,
+      conn: Connection
   ): Array[String] = {
     val metaData = conn.getMetaData
     val rs =
@@ -69,12 +87,95 @@ object JdbcDialectUtils {
     keys.toArray(new Array[String](0))
   }
 
+  /** 查询表的唯一键，优先返回主键，没有主键时返回第一个所有字段都不能为空的唯一索引，都不存在返回空数组
+    */
+  def queryUniqueKeys(
+      dataSourceType: DataSourceType,
+      schemaName: String,
+      tableName: String,
+      conn: Connection
+  ): Array[String] = {
+    JdbcMetadataCache
+      .get(conn, "uniqueKeys", schemaName, tableName) {
+        loadUniqueKeys(dataSourceType, schemaName, tableName, conn)
+      }
+      .clone()
+  }
+
+  private def loadUniqueKeys(
+      dataSourceType: DataSourceType,
+      schemaName: String,
+      tableName: String,
+      conn: Connection
+  ): Array[String] = {
+    val primaryKeys = queryPrimaryKeys(dataSourceType, schemaName, tableName, conn)
+    if (primaryKeys.nonEmpty) {
+      return primaryKeys
+    }
+
+    val metaData = conn.getMetaData
+    val rs =
+      if (
+        dataSourceType == DataSourceType.MYSQL ||
+        dataSourceType == DataSourceType.ORACLE
+      ) {
+        metaData.getIndexInfo(schemaName, null, tableName, true, true)
+      } else {
+        metaData.getIndexInfo(null, schemaName, tableName, true, true)
+      }
+
+    val indexes = new java.util.LinkedHashMap[String, java.util.TreeMap[Integer, String]]()
+    try {
+      while (rs.next) {
+        val indexName = rs.getString("INDEX_NAME")
+        val columnName = rs.getString("COLUMN_NAME")
+        if (
+          !rs.getBoolean("NON_UNIQUE") && indexName != null && columnName != null
+          && rs.getShort("TYPE") != java.sql.DatabaseMetaData.tableIndexStatistic
+        ) {
+          indexes
+            .computeIfAbsent(indexName, _ => new java.util.TreeMap[Integer, String]())
+            .put(rs.getInt("ORDINAL_POSITION"), columnName)
+        }
+      }
+    } finally {
+      JdbcUtils.closeResultSet(rs)
+    }
+
+    if (indexes.isEmpty) {
+      return Array.empty
+    }
+
+    val notNullColumns = new java.util.HashSet[String]()
+    queryColumns(dataSourceType, schemaName, tableName, conn).forEach(column =>
+      if (!column.nullable) notNullColumns.add(column.name)
+    )
+    indexes
+      .values()
+      .stream()
+      .filter(columns => notNullColumns.containsAll(columns.values()))
+      .findFirst()
+      .map[Array[String]](columns => columns.values().toArray(new Array[String](0)))
+      .orElse(Array.empty)
+  }
+
   def queryColumns(
       dataSourceType: DataSourceType,
       schemaName: String,
       tableName: String,
       conn: Connection
   ): java.util.List[Column] = {
+    JdbcMetadataCache.get(conn, "columns", schemaName, tableName) {
+      java.util.Collections.unmodifiableList(loadColumns(dataSourceType, schemaName, tableName, conn))
+    }
+  }
+
+  private def loadColumns(
+      dataSourceType: DataSourceType,
+      schemaName: String,
+      tableName: String,
+      conn: Connection
+  ): java.util.List[Column] = {
 
     val metaData = conn.getMetaData
     val rs = if (dataSourceType == DataSourceType.MYSQL) {
@@ -85,7 +186,8 @@ object JdbcDialectUtils {
     val columns: java.util.List[Column] = Lists.newArrayList();
     try {
       while (rs.next) {
-        val column = Column(rs.getString("COLUMN_NAME"), rs.getInt("DATA_TYPE"))
+        val nullable = rs.getInt("NULLABLE") != java.sql.DatabaseMetaData.columnNoNulls
+        val column = Column(rs.getString("COLUMN_NAME"), rs.getInt("DATA_TYPE"), nullable)
         columns.add(column)
       }
     } finally {
@@ -95,6 +197,20 @@ object JdbcDialectUtils {
     columns
   }
 
+  def queryTableColumnNames(conn: Connection, fullTableName: String): Array[String] = {
+    JdbcMetadataCache
+      .get(conn, "columnNames", null, fullTableName) {
+        CommonJdbcUtils.queryTableColumnNames(conn, fullTableName)
+      }
+      .clone()
+  }
+
+  def getSchemaOption(conn: Connection, options: JdbcOptionsInWrite): Option[StructType] = {
+    JdbcMetadataCache.get(conn, "schema", null, options.table) {
+      SparkJdbcUtils.getSchemaOption(conn, options)
+    }
+  }
+
   def columnNotFoundInSchemaError(
       col: StructField,
       tableSchema: Option[StructType]
@@ -116,4 +232,4 @@ object JdbcDialectUtils {
   }
 }
 
-case class Column(name: String, jdbcType: Int)
+case class Column(name: String, jdbcType: Int, nullable: Boolean = true)
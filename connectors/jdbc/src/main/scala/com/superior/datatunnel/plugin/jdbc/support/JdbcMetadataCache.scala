@@ -0,0 +1,102 @@
+package com.superior.datatunnel.plugin.jdbc.support
+
+import com.google.common.cache.{CacheBuilder, CacheStats}
+import com.google.common.util.concurrent.{ExecutionError, UncheckedExecutionException}
+import com.superior.datatunnel.api.DataTunnelContext
+import io.github.melin.jobserver.spark.api.LogUtils
+import org.apache.commons.lang3.StringUtils
+
+import java.sql.Connection
+import java.util.UUID
+import java.util.concurrent.{Callable, ExecutionException, TimeUnit}
+import scala.concurrent.duration._
+
+/** driver 端 jdbc 元数据缓存(字段、主键、表结构)，按照 (jdbcUrl, user, schema, table) 缓存，source、sink 和 dialect 共享，
+  * 同一个任务中每个表的元数据只查询一次。缓存只在一个任务内有效，新任务开始时(beginJob)清空缓存和统计。
+  */
+object JdbcMetadataCache {
+
+  private case class MetadataKey(url: String, user: String, kind: String, schemaName: String, tableName: String)
+
+  private val JOB_ID_ATTRIBUTE = "jdbc.metadataCacheJobId"
+
+  private val cacheExpireTimeout = 10.minutes.toMillis
+
+  private val cache = CacheBuilder
+    .newBuilder()
+    .expireAfterWrite(cacheExpireTimeout, TimeUnit.MILLISECONDS)
+    .maximumSize(10000)
+    .recordStats()
+    .build[MetadataKey, AnyRef]()
+
+  @volatile private var currentJobId: String = _
+
+  @volatile private var statsBaseline: CacheStats = cache.stats()
+
+  /** 同一个任务的 source 和 sink 共享 job id，job id 变化时清空上一个任务的缓存和统计 */
+  def beginJob(context: DataTunnelContext): Unit = synchronized {
+    var jobId: String = context.getAttribute(JOB_ID_ATTRIBUTE)
+    if (jobId == null) {
+      jobId = UUID.randomUUID().toString
+      context.setAttribute(JOB_ID_ATTRIBUTE, jobId)
+    }
+
+    if (jobId != currentJobId) {
+      cache.invalidateAll()
+      statsBaseline = cache.stats()
+      currentJobId = jobId
+    }
+  }
+
+  def get[T <: AnyRef](conn: Connection, kind: String, schemaName: String, tableName: String)(loader: => T): T = {
+    val metaData = conn.getMetaData
+    val url = metaData.getURL
+    if (url == null) {
+      return loader
+    }
+
+    try {
+      cache
+        .get(
+          MetadataKey(url, metaData.getUserName, kind, schemaName, tableName),
+          new Callable[AnyRef] {
+            override def call(): AnyRef = loader
+          }
+        )
+        .asInstanceOf[T]
+    } catch {
+      case e @ (_: ExecutionException | _: UncheckedExecutionException | _: ExecutionError) if e.getCause != null =>
+        throw e.getCause
+    }
+  }
+
+  /** 表结构变化(删除、创建表)后清除缓存，fullTableName 为 schema.table 格式，对应 get 时的 (schemaName, tableName) 和
+    * (null, fullTableName) 两种 key
+    */
+  def invalidate(conn: Connection, schemaName: String, tableName: String, fullTableName: String): Unit = {
+    val url = conn.getMetaData.getURL
+    val schema = unquote(schemaName)
+    val table = unquote(tableName)
+    cache
+      .asMap()
+      .keySet()
+      .removeIf(key =>
+        key.url == url && (key.tableName == fullTableName ||
+          (StringUtils.equalsIgnoreCase(unquote(key.tableName), table) &&
+            (key.schemaName == null || schema == null || StringUtils.equalsIgnoreCase(unquote(key.schemaName), schema))))
+      )
+  }
+
+  private def unquote(name: String): String = StringUtils.strip(name, "\"`[]")
+
+  /** 当前任务的缓存统计 */
+  def stats(): CacheStats = cache.stats().minus(statsBaseline)
+
+  def logStats(): Unit = {
+    val stats = this.stats()
+    LogUtils.info(
+      s"jdbc metadata cache hit count: ${stats.hitCount()}, miss count: ${stats.missCount()}, " +
+        s"load time: ${stats.totalLoadTime() / 1000000}ms"
+    )
+  }
+}
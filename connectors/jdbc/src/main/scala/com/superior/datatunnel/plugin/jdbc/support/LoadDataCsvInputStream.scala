@@ -0,0 +1,76 @@
+package com.superior.datatunnel.plugin.jdbc.support
+
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.types._
+import org.apache.spark.unsafe.Platform
+import org.apache.spark.unsafe.types.UTF8String
+
+/** LOAD DATA LOCAL INFILE 数据格式: FIELDS TERMINATED BY ',' ENCLOSED BY '"' LINES TERMINATED BY '\n'，null 为 \N，
+  * 字符串和二进制使用双引号包围，双引号和反斜杠使用反斜杠转义
+  */
+class LoadDataCsvInputStream(rows: Iterator[InternalRow], schema: StructType) extends RowEncodingInputStream(rows) {
+
+  private val dataTypes = schema.fields.map(_.dataType)
+
+  // 数字、日期类型不包含分隔符和引号，不需要双引号包围
+  private val enclosed = dataTypes.map(LoadDataCsvInputStream.needEnclose)
+
+  override protected def encodeRow(row: InternalRow): Unit = {
+    var i = 0
+    while (i < dataTypes.length) {
+      if (i > 0) {
+        writeByte(',')
+      }
+
+      if (row.isNullAt(i)) {
+        writeByte('\\')
+        writeByte('N')
+      } else if (enclosed(i)) {
+        writeByte('"')
+        writeValue(row, i, dataTypes(i))
+        writeByte('"')
+      } else {
+        writeValue(row, i, dataTypes(i))
+      }
+      i += 1
+    }
+    writeByte('\n')
+  }
+
+  override protected def writeBoolean(value: Boolean): Unit = {
+    writeByte(if (value) '1' else '0')
+  }
+
+  override protected def writeString(value: UTF8String): Unit = {
+    writeEscaped(value.getBaseObject, value.getBaseOffset, value.numBytes())
+  }
+
+  override protected def writeBinary(value: Array[Byte]): Unit = {
+    writeEscaped(value, Platform.BYTE_ARRAY_OFFSET, value.length)
+  }
+
+  private def writeEscaped(base: AnyRef, offset: Long, length: Int): Unit = {
+    // 最坏情况每个字节都需要转义
+    ensureCapacity(length * 2)
+
+    var i = 0
+    while (i < length) {
+      val b = Platform.getByte(base, offset + i)
+      if (b == '"' || b == '\\') {
+        buffer(count) = '\\'
+        count += 1
+      }
+      buffer(count) = b
+      count += 1
+      i += 1
+    }
+  }
+}
+
+object LoadDataCsvInputStream {
+
+  private def needEnclose(dataType: DataType): Boolean = dataType match {
+    case _: NumericType | BooleanType | DateType | TimestampType | TimestampNTZType => false
+    case _ => true
+  }
+}
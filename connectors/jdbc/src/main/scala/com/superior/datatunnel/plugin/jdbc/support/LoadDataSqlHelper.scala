@@ -4,109 +4,244 @@ import com.gitee.melin.bee.util.JdbcUtils
 import com.mysql.cj.jdbc.JdbcStatement
 import com.oceanbase.jdbc.OceanBaseStatement
 import com.superior.datatunnel.api.{DataSourceType, DataTunnelException}
+import org.apache.commons.lang3.StringUtils
 import org.apache.spark.internal.Logging
 import org.apache.spark.sql.execution.datasources.jdbc.JdbcOptionsInWrite
 import org.apache.spark.sql.jdbc.JdbcDialects
-import org.apache.spark.sql.{DataFrame, Row}
+import org.apache.spark.sql.DataFrame
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.types.StructType
 
-import java.io.InputStream
-import java.nio.ByteBuffer
+import java.io.{ByteArrayInputStream, InputStream}
+import java.sql.{
+  Connection,
+  SQLException,
+  SQLNonTransientConnectionException,
+  SQLRecoverableException,
+  SQLTransactionRollbackException,
+  SQLTransientConnectionException,
+  SQLTransientException
+}
+import java.util.concurrent.atomic.AtomicReference
+import java.util.concurrent.{ArrayBlockingQueue, Executors, TimeUnit}
 
 // https://gist.github.com/longcao/bb61f1798ccbbfa4a0d7b76e49982f84
 object LoadDataSqlHelper extends Logging {
 
-  private val fieldDelimiter = ",";
-
-  def rowsToInputStream(rows: Iterator[Row]): InputStream = {
-    val bytes: Iterator[Byte] = rows.flatMap { row =>
-      {
-        val columns = row.toSeq.map { v =>
-          if (v == null) {
-            Array[Byte]('\\', 'N')
-          } else {
-            v match {
-              case decimal: java.math.BigDecimal =>
-                decimal.toPlainString.getBytes()
-              case _ =>
-                v.toString.getBytes()
-            }
+  // 写入线程结束标记
+  private val END_OF_CHUNKS = new Array[Byte](0)
+
+  def rowsToInputStream(rows: Iterator[InternalRow], schema: StructType): InputStream = {
+    new LoadDataCsvInputStream(rows, schema)
+  }
+
+  /** 每个分区按照 bulkChunkSizeMb、bulkChunkRows 切分为多个 LOAD DATA 语句，失败的批次单独重试，bulkParallelism > 1 时多个连接并发写入。
+    * bulkChunkSizeMb 和 bulkChunkRows 都为 0 时，整个分区一个 LOAD DATA 语句。
+    */
+  def loadData(
+      dataSourceType: DataSourceType,
+      parameters: Map[String, String]
+  )(df: DataFrame, loadCommand: String): Unit = {
+    if (dataSourceType != DataSourceType.MYSQL && dataSourceType != DataSourceType.OCEANBASE) {
+      throw new DataTunnelException(
+        s"$dataSourceType not support load data"
+      )
+    }
+
+    val schema = df.schema
+    val chunkBytes = parameters.getOrElse("bulkChunkSizeMb", "64").toLong * 1024 * 1024
+    val chunkRows = parameters.getOrElse("bulkChunkRows", "0").toLong
+    val parallelism = Math.max(1, parameters.getOrElse("bulkParallelism", "1").toInt)
+    val maxRetries = Math.max(0, parameters.getOrElse("bulkMaxRetries", "3").toInt)
+
+    df.queryExecution.toRdd.foreachPartition { rows =>
+      val options = new JdbcOptionsInWrite(parameters)
+      if (chunkBytes <= 0 && chunkRows <= 0) {
+        val conn = createConnection(options)
+        try {
+          executeLoad(conn, dataSourceType, loadCommand, rowsToInputStream(rows, schema))
+        } finally {
+          JdbcUtils.closeConnection(conn)
+        }
+      } else if (parallelism == 1) {
+        val loader = new ChunkLoader(options, dataSourceType, loadCommand, maxRetries)
+        try {
+          while (rows.hasNext) {
+            loader.load(nextChunk(rows, schema, chunkBytes, chunkRows))
           }
+        } finally {
+          loader.close()
+        }
+      } else {
+        loadParallel(rows, schema, chunkBytes, chunkRows, parallelism) { () =>
+          new ChunkLoader(options, dataSourceType, loadCommand, maxRetries)
         }
+      }
+    }
+  }
 
-        val bytesSize = columns.map(_.length).sum
-        val byteBuffer = ByteBuffer.allocate((bytesSize * 2 + 10).toInt)
+  // 读取下一批数据，编码后保存在内存中，失败重试时重新发送
+  private def nextChunk(
+      rows: Iterator[InternalRow],
+      schema: StructType,
+      chunkBytes: Long,
+      chunkRows: Long
+  ): Array[Byte] = {
+    var rowCount = 0L
+    var stream: LoadDataCsvInputStream = null
+    val chunkIterator = new Iterator[InternalRow] {
+      override def hasNext: Boolean = {
+        (chunkRows <= 0 || rowCount < chunkRows) &&
+        (chunkBytes <= 0 || stream.encodedBytes < chunkBytes) &&
+        rows.hasNext
+      }
 
-        var index: Int = 0;
-        columns.foreach(bytes => {
-          if (index > 0) {
-            byteBuffer.put(fieldDelimiter.getBytes)
-          }
+      override def next(): InternalRow = {
+        rowCount += 1
+        rows.next()
+      }
+    }
 
-          if (
-            bytes.length == 2 && bytes(0) == '\\'.toByte && bytes(
-              1
-            ) == 'N'.toByte
-          ) {
-            byteBuffer.put(bytes)
-          } else {
-            byteBuffer.put('"'.toByte)
-            bytes.foreach(ch => {
-              if (ch == '"'.toByte) {
-                byteBuffer.put('\\'.toByte).put('"'.toByte)
-              } else if (ch == '\\') {
-                byteBuffer.put('\\'.toByte).put(ch)
-              } else {
-                byteBuffer.put(ch)
+    stream = new LoadDataCsvInputStream(chunkIterator, schema)
+    stream.readAllBytes()
+  }
+
+  // 当前线程编码数据，parallelism 个线程各自使用一个连接写入，队列长度限制内存中的批次数量
+  private def loadParallel(
+      rows: Iterator[InternalRow],
+      schema: StructType,
+      chunkBytes: Long,
+      chunkRows: Long,
+      parallelism: Int
+  )(createLoader: () => ChunkLoader): Unit = {
+    val queue = new ArrayBlockingQueue[Array[Byte]](parallelism)
+    val error = new AtomicReference[Throwable]()
+    val pool = Executors.newFixedThreadPool(parallelism)
+    try {
+      for (_ <- 0 until parallelism) {
+        pool.submit(new Runnable {
+          override def run(): Unit = {
+            val loader = createLoader()
+            try {
+              var chunk = queue.take()
+              while (chunk ne END_OF_CHUNKS) {
+                if (error.get() == null) {
+                  loader.load(chunk)
+                }
+                chunk = queue.take()
               }
-            })
-            byteBuffer.put('"'.toByte)
+            } catch {
+              case e: Throwable => error.compareAndSet(null, e)
+            } finally {
+              loader.close()
+            }
           }
-
-          index = index + 1
         })
+      }
 
-        byteBuffer.put('\n'.toByte)
-        byteBuffer.flip()
-        val bytesArray = new Array[Byte](byteBuffer.remaining)
-        byteBuffer.get(bytesArray, 0, bytesArray.length)
-        bytesArray
+      while (rows.hasNext && error.get() == null) {
+        val chunk = nextChunk(rows, schema, chunkBytes, chunkRows)
+        while (!queue.offer(chunk, 1, TimeUnit.SECONDS) && error.get() == null) {}
+      }
+    } finally {
+      // 写入线程异常退出时队列不再消费，清空队列保证结束标记可以放入
+      for (_ <- 0 until parallelism) {
+        while (!queue.offer(END_OF_CHUNKS, 1, TimeUnit.SECONDS)) {
+          queue.poll()
+        }
       }
+      pool.shutdown()
+      pool.awaitTermination(Long.MaxValue, TimeUnit.MILLISECONDS)
     }
 
-    () =>
-      if (bytes.hasNext) {
-        bytes.next & 0xff // bitwise AND - make the signed byte an unsigned int from 0-255
+    if (error.get() != null) {
+      throw error.get()
+    }
+  }
+
+  // 建立连接失败时数据还没有发送；执行失败时只有死锁(1213)、锁等待超时(1205)服务端已经回滚当前语句
+  private def isRetryable(e: SQLException, executing: Boolean): Boolean = {
+    if (!executing) {
+      e.isInstanceOf[SQLTransientException] || e.isInstanceOf[SQLRecoverableException] || isConnectionError(e)
+    } else {
+      e.isInstanceOf[SQLTransactionRollbackException] || e.getErrorCode == 1213 || e.getErrorCode == 1205 ||
+      "40001" == e.getSQLState
+    }
+  }
+
+  private def isConnectionError(e: SQLException): Boolean = {
+    e.isInstanceOf[SQLRecoverableException] || e.isInstanceOf[SQLNonTransientConnectionException] ||
+    e.isInstanceOf[SQLTransientConnectionException] || StringUtils.startsWith(e.getSQLState, "08")
+  }
+
+  private def createConnection(options: JdbcOptionsInWrite): Connection = {
+    val dialect = JdbcDialects.get(options.url)
+    dialect.createConnectionFactory(options)(-1)
+  }
+
+  private def executeLoad(
+      conn: Connection,
+      dataSourceType: DataSourceType,
+      loadCommand: String,
+      input: InputStream
+  ): Unit = {
+    val statement = conn.createStatement();
+    try {
+      if (dataSourceType == DataSourceType.MYSQL) {
+        val jdbcStatement = statement.asInstanceOf[JdbcStatement];
+        jdbcStatement.setLocalInfileInputStream(input)
       } else {
-        -1
+        val jdbcStatement = statement.asInstanceOf[OceanBaseStatement];
+        jdbcStatement.setLocalInfileInputStream(input)
       }
+
+      statement.execute(loadCommand)
+    } finally {
+      JdbcUtils.closeStatement(statement)
+    }
   }
 
-  def loadData(
+  // 一个数据库连接，按批次执行 LOAD DATA，失败时重建连接重试。
+  // 自动提交模式下执行过程中连接断开，服务端可能已经提交，重试会重复写入，只重试建立连接失败和服务端已经回滚的错误
+  private class ChunkLoader(
+      options: JdbcOptionsInWrite,
       dataSourceType: DataSourceType,
-      parameters: Map[String, String]
-  )(df: DataFrame, loadCommand: String): Unit = {
-    df.rdd.foreachPartition { rows =>
-      val options = new JdbcOptionsInWrite(parameters)
-      val dialect = JdbcDialects.get(options.url)
-      val conn = dialect.createConnectionFactory(options)(-1)
-      val statement = conn.createStatement();
-      try {
-        if (dataSourceType == DataSourceType.MYSQL) {
-          val jdbcStatement = statement.asInstanceOf[JdbcStatement];
-          jdbcStatement.setLocalInfileInputStream(rowsToInputStream(rows))
-        } else if (dataSourceType == DataSourceType.OCEANBASE) {
-          val jdbcStatement = statement.asInstanceOf[OceanBaseStatement];
-          jdbcStatement.setLocalInfileInputStream(rowsToInputStream(rows))
-        } else {
-          throw new DataTunnelException(
-            s"$dataSourceType not support load data"
-          )
+      loadCommand: String,
+      maxRetries: Int
+  ) {
+    private var conn: Connection = _
+
+    def load(chunk: Array[Byte]): Unit = {
+      var attempt = 0
+      var finished = false
+      while (!finished) {
+        var executing = false
+        try {
+          if (conn == null) {
+            conn = createConnection(options)
+          }
+          executing = true
+          executeLoad(conn, dataSourceType, loadCommand, new ByteArrayInputStream(chunk))
+          finished = true
+        } catch {
+          case e: SQLException if attempt < maxRetries && isRetryable(e, executing) =>
+            attempt += 1
+            logWarning(s"load data failed, retry ${attempt}/${maxRetries}, chunk size: ${chunk.length}", e)
+            close()
+            Thread.sleep(1000L * attempt)
+          case e: SQLException if executing && isConnectionError(e) =>
+            throw new DataTunnelException(
+              s"load data connection lost, chunk (${chunk.length} bytes) commit status unknown: ${e.getMessage}",
+              e
+            )
         }
+      }
+    }
 
-        statement.execute(loadCommand)
-      } finally {
-        JdbcUtils.closeStatement(statement)
+    def close(): Unit = {
+      if (conn != null) {
         JdbcUtils.closeConnection(conn)
+        conn = null
       }
     }
   }
@@ -0,0 +1,208 @@
+package com.superior.datatunnel.plugin.jdbc.support
+
+import com.gitee.melin.bee.util.JdbcUtils
+import com.superior.datatunnel.api.DataTunnelException
+import org.apache.spark.TaskContext
+import org.apache.spark.internal.Logging
+import org.apache.spark.sql.Row
+import org.apache.spark.sql.execution.datasources.jdbc.JdbcOptionsInWrite
+import org.apache.spark.sql.execution.datasources.jdbc.JdbcUtils.getJdbcType
+import org.apache.spark.sql.jdbc.JdbcDialect
+import org.apache.spark.sql.types._
+
+import java.sql.{Connection, PreparedStatement}
+import java.time.{Instant, LocalDate, LocalDateTime}
+
+/** 驱动不支持 batch 重写时(oracle、db2、dameng、sqlserver)，每个 insert 语句写入多行记录，减少网络往返次数。
+  * 语句格式由 DefaultDatabaseDialect.getMultiRowInsertStatement 生成，参数按照行顺序依次设置。rowsPerStatement 为 1 时使用 jdbc batch。
+  * 设置 commitLog 时(exactlyOnce)，分区数据和提交日志在同一个事务中提交。commitEachBatch 为 true 时每次 executeBatch 之后提交
+  * (oracle APPEND_VALUES 直接路径写入，同一个事务中不能再次写入同一张表)。
+  */
+object MultiRowInsertHelper extends Logging {
+
+  // (statement, row, position, parameterIndex)
+  private type ValueSetter = (PreparedStatement, Row, Int, Int) => Unit
+
+  def isSupportedSchema(schema: StructType): Boolean = {
+    schema.fields.forall { field =>
+      field.dataType match {
+        case _: NumericType | BooleanType | StringType | BinaryType => true
+        case DateType | TimestampType | TimestampNTZType => true
+        case _ => false
+      }
+    }
+  }
+
+  def savePartition(
+      iterator: Iterator[Row],
+      rddSchema: StructType,
+      rowsPerStatement: Int,
+      batchSize: Int,
+      buildStatement: Int => String,
+      dialect: JdbcDialect,
+      isolationLevel: Int,
+      options: JdbcOptionsInWrite,
+      commitLog: JdbcCommitLog = null,
+      commitEachBatch: Boolean = false
+  ): Unit = {
+    if (!iterator.hasNext && commitLog == null) {
+      return
+    }
+
+    val conn = dialect.createConnectionFactory(options)(-1)
+    var committed = false
+    var supportsTransactions = false
+    try {
+      if (isolationLevel != Connection.TRANSACTION_NONE) {
+        val metadata = conn.getMetaData
+        supportsTransactions = metadata.supportsTransactions() &&
+          metadata.supportsTransactionIsolationLevel(isolationLevel)
+      }
+      if (supportsTransactions) {
+        conn.setAutoCommit(false)
+        conn.setTransactionIsolation(isolationLevel)
+      }
+
+      if (commitLog != null) {
+        if (!supportsTransactions) {
+          throw new DataTunnelException("exactlyOnce 写入需要数据库支持事务，isolationLevel 不能为 NONE")
+        }
+        val context = TaskContext.get()
+        if (!commitLog.register(conn, context.partitionId(), context.attemptNumber())) {
+          committed = true
+          return
+        }
+      }
+
+      val setters = rddSchema.fields.map(field => makeSetter(field.dataType))
+      val nullTypes = rddSchema.fields.map(field => getJdbcType(field.dataType, dialect).jdbcNullType)
+      val numFields = rddSchema.fields.length
+
+      val stmt = conn.prepareStatement(buildStatement(rowsPerStatement))
+      try {
+        stmt.setQueryTimeout(options.queryTimeout)
+        val buffer = new Array[Row](rowsPerStatement)
+        var rowCount = 0
+        var batchCount = 0
+        while (iterator.hasNext) {
+          buffer(rowCount) = iterator.next()
+          rowCount += 1
+          if (rowCount == rowsPerStatement) {
+            setParameters(stmt, buffer, rowCount, numFields, setters, nullTypes)
+            rowCount = 0
+            if (rowsPerStatement > 1) {
+              stmt.executeUpdate()
+            } else {
+              stmt.addBatch()
+              batchCount += 1
+              if (batchCount >= batchSize) {
+                stmt.executeBatch()
+                batchCount = 0
+                if (commitEachBatch && supportsTransactions) {
+                  conn.commit()
+                }
+              }
+            }
+          }
+        }
+        if (batchCount > 0) {
+          stmt.executeBatch()
+        }
+
+        // 剩余记录使用单独的语句
+        if (rowCount > 0) {
+          val tailStmt = conn.prepareStatement(buildStatement(rowCount))
+          try {
+            tailStmt.setQueryTimeout(options.queryTimeout)
+            setParameters(tailStmt, buffer, rowCount, numFields, setters, nullTypes)
+            tailStmt.executeUpdate()
+          } finally {
+            JdbcUtils.closeStatement(tailStmt)
+          }
+        }
+      } finally {
+        JdbcUtils.closeStatement(stmt)
+      }
+
+      if (supportsTransactions) {
+        conn.commit()
+      }
+      committed = true
+    } finally {
+      if (!committed && supportsTransactions) {
+        try {
+          conn.rollback()
+        } catch {
+          case e: Exception => logWarning("Transaction rollback failed", e)
+        }
+      }
+      JdbcUtils.closeConnection(conn)
+    }
+  }
+
+  private def setParameters(
+      stmt: PreparedStatement,
+      rows: Array[Row],
+      rowCount: Int,
+      numFields: Int,
+      setters: Array[ValueSetter],
+      nullTypes: Array[Int]
+  ): Unit = {
+    var parameterIndex = 1
+    var i = 0
+    while (i < rowCount) {
+      val row = rows(i)
+      var j = 0
+      while (j < numFields) {
+        if (row.isNullAt(j)) {
+          stmt.setNull(parameterIndex, nullTypes(j))
+        } else {
+          setters(j)(stmt, row, j, parameterIndex)
+        }
+        parameterIndex += 1
+        j += 1
+      }
+      i += 1
+    }
+  }
+
+  private def makeSetter(dataType: DataType): ValueSetter = dataType match {
+    case IntegerType =>
+      (stmt, row, pos, index) => stmt.setInt(index, row.getInt(pos))
+    case LongType =>
+      (stmt, row, pos, index) => stmt.setLong(index, row.getLong(pos))
+    case DoubleType =>
+      (stmt, row, pos, index) => stmt.setDouble(index, row.getDouble(pos))
+    case FloatType =>
+      (stmt, row, pos, index) => stmt.setFloat(index, row.getFloat(pos))
+    case ShortType =>
+      (stmt, row, pos, index) => stmt.setInt(index, row.getShort(pos))
+    case ByteType =>
+      (stmt, row, pos, index) => stmt.setInt(index, row.getByte(pos))
+    case BooleanType =>
+      (stmt, row, pos, index) => stmt.setBoolean(index, row.getBoolean(pos))
+    case StringType =>
+      (stmt, row, pos, index) => stmt.setString(index, row.getString(pos))
+    case BinaryType =>
+      (stmt, row, pos, index) => stmt.setBytes(index, row.getAs[Array[Byte]](pos))
+    case _: DecimalType =>
+      (stmt, row, pos, index) => stmt.setBigDecimal(index, row.getDecimal(pos))
+    case DateType =>
+      (stmt, row, pos, index) =>
+        row.get(pos) match {
+          case date: LocalDate => stmt.setDate(index, java.sql.Date.valueOf(date))
+          case date => stmt.setDate(index, date.asInstanceOf[java.sql.Date])
+        }
+    case TimestampType =>
+      (stmt, row, pos, index) =>
+        row.get(pos) match {
+          case instant: Instant => stmt.setTimestamp(index, java.sql.Timestamp.from(instant))
+          case timestamp => stmt.setTimestamp(index, timestamp.asInstanceOf[java.sql.Timestamp])
+        }
+    case TimestampNTZType =>
+      (stmt, row, pos, index) =>
+        stmt.setTimestamp(index, java.sql.Timestamp.valueOf(row.getAs[LocalDateTime](pos)))
+    case _ =>
+      throw new IllegalArgumentException(s"Can't translate non-null value for field $dataType")
+  }
+}
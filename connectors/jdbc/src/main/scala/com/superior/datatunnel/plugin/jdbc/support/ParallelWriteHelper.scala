@@ -0,0 +1,140 @@
+package com.superior.datatunnel.plugin.jdbc.support
+
+import com.superior.datatunnel.api.DataTunnelException
+import org.apache.spark.TaskContext
+import org.apache.spark.internal.Logging
+import org.apache.spark.sql.datatunnel.jdbc.TaskContextUtils
+import org.apache.spark.sql.{DataFrame, Row}
+
+import java.util.concurrent.atomic.AtomicReference
+import java.util.concurrent.{ArrayBlockingQueue, Executors, TimeUnit}
+
+/** 写入并发和数据库连接数控制: maxConnections 控制写入分区数量，和上游分区数量无关，writerThreads 控制每个分区并发写入的连接数，
+  * 当前线程按照 batchsize 分批放入有界队列，每个写入线程使用独立连接消费队列数据。
+  */
+object ParallelWriteHelper extends Logging {
+
+  // 写入线程结束标记
+  private val END_OF_ROWS = new Array[Row](0)
+
+  /** maxConnections > 0 时，分区数量调整为 maxConnections / writerThreads，否则 numPartitions 作为分区数量上限 */
+  def rebalance(df: DataFrame, numPartitions: Option[Int], maxConnections: Int, writerThreads: Int): DataFrame = {
+    val currentPartitions = df.rdd.getNumPartitions
+    if (maxConnections > 0) {
+      val targetPartitions = Math.max(1, maxConnections / writerThreads)
+      if (targetPartitions < currentPartitions) {
+        logInfo(s"coalesce partitions from $currentPartitions to $targetPartitions, maxConnections: $maxConnections")
+        df.coalesce(targetPartitions)
+      } else if (targetPartitions > currentPartitions) {
+        logInfo(s"repartition from $currentPartitions to $targetPartitions, maxConnections: $maxConnections")
+        df.repartition(targetPartitions)
+      } else {
+        df
+      }
+    } else {
+      numPartitions match {
+        case Some(n) if n < currentPartitions => df.coalesce(n)
+        case _ => df
+      }
+    }
+  }
+
+  /** writerThreads <= 1 时当前线程直接写入，否则启动 writerThreads 个线程，每个线程调用一次 write，write 内部创建连接 */
+  def writePartition(iterator: Iterator[Row], writerThreads: Int, batchSize: Int)(write: Iterator[Row] => Unit): Unit = {
+    if (writerThreads <= 1) {
+      write(iterator)
+      return
+    }
+
+    // 写入线程使用任务线程的 TaskContext
+    val taskContext = TaskContext.get()
+    val queue = new ArrayBlockingQueue[Array[Row]](writerThreads * 2)
+    val error = new AtomicReference[Throwable]()
+    val pool = Executors.newFixedThreadPool(writerThreads)
+    try {
+      for (_ <- 0 until writerThreads) {
+        val rows = new QueueIterator(queue, error)
+        pool.submit(new Runnable {
+          override def run(): Unit = {
+            try {
+              TaskContextUtils.withTaskContext(taskContext) {
+                write(rows)
+              }
+            } catch {
+              case e: Throwable => error.compareAndSet(null, e)
+            } finally {
+              // 异常退出时继续消费到结束标记，避免生产线程阻塞
+              rows.skipRemaining()
+            }
+          }
+        })
+      }
+
+      val size = Math.max(1, batchSize)
+      while (iterator.hasNext && error.get() == null) {
+        val rows = new Array[Row](size)
+        var count = 0
+        while (count < size && iterator.hasNext) {
+          rows(count) = iterator.next()
+          count += 1
+        }
+        val batch = if (count == size) rows else java.util.Arrays.copyOf(rows, count)
+        while (!queue.offer(batch, 1, TimeUnit.SECONDS) && error.get() == null) {}
+      }
+    } catch {
+      case e: Throwable =>
+        // 读取上游数据失败，写入线程回滚事务
+        error.compareAndSet(null, e)
+    } finally {
+      for (_ <- 0 until writerThreads) {
+        queue.put(END_OF_ROWS)
+      }
+      pool.shutdown()
+      pool.awaitTermination(Long.MaxValue, TimeUnit.MILLISECONDS)
+    }
+
+    if (error.get() != null) {
+      throw error.get()
+    }
+  }
+
+  private class QueueIterator(queue: ArrayBlockingQueue[Array[Row]], error: AtomicReference[Throwable])
+      extends Iterator[Row] {
+
+    private var rows: Array[Row] = _
+
+    private var index = 0
+
+    private var finished = false
+
+    override def hasNext: Boolean = {
+      while (!finished && (rows == null || index >= rows.length)) {
+        // 其它写入线程失败，当前线程抛出异常回滚事务
+        if (error.get() != null) {
+          throw new DataTunnelException("another writer thread failed", error.get())
+        }
+        rows = queue.take()
+        index = 0
+        if (rows eq END_OF_ROWS) {
+          finished = true
+        }
+      }
+      !finished
+    }
+
+    def skipRemaining(): Unit = {
+      while (!finished) {
+        finished = queue.take() eq END_OF_ROWS
+      }
+    }
+
+    override def next(): Row = {
+      if (!hasNext) {
+        throw new NoSuchElementException("end of rows")
+      }
+      val row = rows(index)
+      index += 1
+      row
+    }
+  }
+}
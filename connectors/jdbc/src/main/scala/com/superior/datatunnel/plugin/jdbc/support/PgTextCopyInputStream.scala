@@ -0,0 +1,83 @@
+package com.superior.datatunnel.plugin.jdbc.support
+
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.types.StructType
+import org.apache.spark.unsafe.Platform
+import org.apache.spark.unsafe.types.UTF8String
+
+/** COPY FROM STDIN 文本格式: 字段使用 delimiter 分隔，null 为 \N，反斜杠、换行、回车、tab 和分隔符需要转义
+  */
+class PgTextCopyInputStream(rows: Iterator[InternalRow], schema: StructType, delimiter: Byte)
+    extends RowEncodingInputStream(rows) {
+
+  private val dataTypes = schema.fields.map(_.dataType)
+
+  override protected def encodeRow(row: InternalRow): Unit = {
+    var i = 0
+    while (i < dataTypes.length) {
+      if (i > 0) {
+        writeByte(delimiter)
+      }
+
+      if (row.isNullAt(i)) {
+        writeByte('\\')
+        writeByte('N')
+      } else {
+        writeValue(row, i, dataTypes(i))
+      }
+      i += 1
+    }
+    writeByte('\n')
+  }
+
+  // PostgreSQL 不支持负数年份
+  override protected def bcEraSuffix: Boolean = true
+
+  override protected def writeString(value: UTF8String): Unit = {
+    val base = value.getBaseObject
+    val offset = value.getBaseOffset
+    val length = value.numBytes()
+    // 最坏情况每个字节都需要转义
+    ensureCapacity(length * 2)
+
+    var i = 0
+    while (i < length) {
+      val b = Platform.getByte(base, offset + i)
+      b match {
+        case '\\' =>
+          buffer(count) = '\\'
+          buffer(count + 1) = '\\'
+          count += 2
+        case '\t' =>
+          buffer(count) = '\\'
+          buffer(count + 1) = 't'
+          count += 2
+        case '\r' =>
+          buffer(count) = '\\'
+          buffer(count + 1) = 'r'
+          count += 2
+        case '\n' =>
+          buffer(count) = '\\'
+          buffer(count + 1) = 'n'
+          count += 2
+        case 0 =>
+        case _ =>
+          if (b == delimiter) {
+            buffer(count) = '\\'
+            count += 1
+          }
+          buffer(count) = b
+          count += 1
+      }
+      i += 1
+    }
+  }
+
+  // bytea 十六进制格式 \x...，反斜杠在文本格式中需要转义
+  override protected def writeBinary(value: Array[Byte]): Unit = {
+    writeByte('\\')
+    writeByte('\\')
+    writeByte('x')
+    writeHex(value)
+  }
+}
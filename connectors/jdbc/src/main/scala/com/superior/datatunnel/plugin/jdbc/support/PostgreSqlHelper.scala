@@ -9,76 +9,28 @@ import org.apache.spark.sql.execution.datasources.jdbc.JdbcOptionsInWrite
 import org.apache.spark.sql.jdbc.JdbcDialects
 
 import java.io.InputStream
-import org.apache.spark.sql.{DataFrame, Row}
+import org.apache.spark.sql.DataFrame
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.types.StructType
 import org.postgresql.copy.CopyManager
 import org.postgresql.core.BaseConnection
 
-import java.nio.ByteBuffer
 import java.util
 import scala.collection.JavaConverters._
 
 // https://gist.github.com/longcao/bb61f1798ccbbfa4a0d7b76e49982f84
 object PostgreSqlHelper extends Logging {
 
-  def rowsToInputStream(rows: Iterator[Row]): InputStream = {
-    val bytes: Iterator[Byte] = rows.flatMap { row =>
-      {
-        val columns = row.toSeq.map { v =>
-          if (v == null) {
-            "\\N".getBytes()
-          } else {
-            v match {
-              case decimal: java.math.BigDecimal =>
-                decimal.toPlainString.getBytes()
-              case _ =>
-                v.toString.getBytes()
-            }
-          }
-        }
-
-        val bytesSize = columns.filter(_ != null).map(_.length).sum
-        val byteBuffer = ByteBuffer.allocate(bytesSize * 2 + 10)
-
-        var index: Int = 0;
-        columns.foreach(bytes => {
-          if (index > 0) {
-            byteBuffer.put(Constants.FIELD_DELIMITER.getBytes)
-          }
-
-          if (
-            bytes.length == 2 && bytes(0) == '\\'.toByte && bytes(
-              1
-            ) == 'N'.toByte
-          ) {
-            byteBuffer.put(bytes)
-          } else {
-            Constants.handlePgIdentifierBytes(bytes, byteBuffer)
-          }
-
-          index = index + 1
-        })
-
-        byteBuffer.put('\n'.toByte)
-        byteBuffer.flip()
-        val bytesArray = new Array[Byte](byteBuffer.remaining)
-        byteBuffer.get(bytesArray, 0, bytesArray.length)
-        bytesArray
-      }
-    }
-
-    () =>
-      if (bytes.hasNext) {
-        bytes.next & 0xff // bitwise AND - make the signed byte an unsigned int from 0-255
-      } else {
-        -1
-      }
+  def rowsToInputStream(rows: Iterator[InternalRow], schema: StructType): InputStream = {
+    new PgTextCopyInputStream(rows, schema, Constants.FIELD_DELIMITER.charAt(0).toByte)
   }
 
   def buildUpsertPGSql(
       tableName: String,
       tempTableName: String,
       columns: util.List[String],
-      upsertKeyColumns: Array[String]
+      upsertKeyColumns: Array[String],
+      condition: String = null
   ): String = {
 
     val updateColumns = columns.asScala
@@ -98,6 +50,9 @@ object PostgreSqlHelper extends Logging {
       .append(StringUtils.join(columns, ","))
       .append("\n")
     sqlBuilder.append("\tfrom ").append(tempTableName).append("\n")
+    if (StringUtils.isNotBlank(condition)) {
+      sqlBuilder.append("\twhere ").append(condition).append("\n")
+    }
     sqlBuilder
       .append("on conflict (")
       .append(upsertKeyColumns.mkString(","))
@@ -130,7 +85,8 @@ object PostgreSqlHelper extends Logging {
   def copyIn(
       parameters: Map[String, String]
   )(df: DataFrame, table: String): Unit = {
-    df.rdd.foreachPartition { rows =>
+    val schema = df.schema
+    df.queryExecution.toRdd.foreachPartition { rows =>
       val options = new JdbcOptionsInWrite(parameters)
       val dialect = JdbcDialects.get(options.url)
       val conn = dialect.createConnectionFactory(options)(-1)
@@ -139,7 +95,7 @@ object PostgreSqlHelper extends Logging {
         val sql =
           s"COPY $table FROM STDIN DELIMITER '${Constants.FIELD_DELIMITER}' ";
         logInfo(s"copy from sql: $sql")
-        cm.copyIn(sql, rowsToInputStream(rows))
+        cm.copyIn(sql, rowsToInputStream(rows, schema))
         ()
       } finally {
         JdbcUtils.closeConnection(conn)
@@ -0,0 +1,312 @@
+package com.superior.datatunnel.plugin.jdbc.support
+
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.types._
+import org.apache.spark.unsafe.types.UTF8String
+
+import java.io.InputStream
+import java.nio.charset.StandardCharsets
+import java.time.{Instant, ZoneId}
+
+/** 批量导入(COPY、LOAD DATA)使用的输入流，InternalRow 按照字段类型直接编码到可复用的缓冲区，通过 read(byte[], int, int) 批量读取，
+  * 避免每行创建 Row、字符串和 ByteBuffer。子类负责行格式和字符串转义。
+  */
+abstract class RowEncodingInputStream(rows: Iterator[InternalRow]) extends InputStream {
+
+  import RowEncodingInputStream._
+
+  protected var buffer: Array[Byte] = new Array[Byte](INITIAL_BUFFER_SIZE)
+
+  protected var count = 0
+
+  private var position = 0
+
+  // 已经读取完的缓冲区字节数
+  private var flushedBytes = 0L
+
+  private val zoneRules = ZoneId.systemDefault().getRules
+
+  private var cachedOffsetBucket = Long.MinValue
+
+  private var cachedOffsetSeconds = 0
+
+  private val digits = new Array[Byte](20)
+
+  /** 编码一行记录到缓冲区 */
+  protected def encodeRow(row: InternalRow): Unit
+
+  override def read(): Int = {
+    if (position >= count && !fill()) {
+      -1
+    } else {
+      val value = buffer(position) & 0xff
+      position += 1
+      value
+    }
+  }
+
+  override def read(b: Array[Byte], off: Int, len: Int): Int = {
+    if (len == 0) {
+      return 0
+    }
+    if (position >= count && !fill()) {
+      return -1
+    }
+
+    val size = Math.min(len, count - position)
+    System.arraycopy(buffer, position, b, off, size)
+    position += size
+    size
+  }
+
+  override def available(): Int = count - position
+
+  /** 已经编码的字节数 */
+  def encodedBytes: Long = flushedBytes + count
+
+  // 一次编码多行，直到缓冲区超过 FLUSH_SIZE
+  private def fill(): Boolean = {
+    flushedBytes += count
+    position = 0
+    count = 0
+    while (count < FLUSH_SIZE && rows.hasNext) {
+      encodeRow(rows.next())
+    }
+    count > 0
+  }
+
+  protected final def ensureCapacity(size: Int): Unit = {
+    if (count + size > buffer.length) {
+      val newBuffer = new Array[Byte](Math.max(buffer.length * 2, count + size))
+      System.arraycopy(buffer, 0, newBuffer, 0, count)
+      buffer = newBuffer
+    }
+  }
+
+  protected final def writeByte(value: Byte): Unit = {
+    ensureCapacity(1)
+    buffer(count) = value
+    count += 1
+  }
+
+  protected final def writeBytes(bytes: Array[Byte]): Unit = {
+    ensureCapacity(bytes.length)
+    System.arraycopy(bytes, 0, buffer, count, bytes.length)
+    count += bytes.length
+  }
+
+  protected final def writeLong(value: Long): Unit = {
+    if (value == Long.MinValue) {
+      writeBytes(LONG_MIN_VALUE)
+      return
+    }
+
+    var v = value
+    if (v < 0) {
+      writeByte('-')
+      v = -v
+    }
+
+    var i = digits.length
+    do {
+      i -= 1
+      digits(i) = ('0' + (v % 10)).toByte
+      v /= 10
+    } while (v != 0)
+
+    val size = digits.length - i
+    ensureCapacity(size)
+    System.arraycopy(digits, i, buffer, count, size)
+    count += size
+  }
+
+  // 左边补 0 到固定宽度
+  protected final def writePadded(value: Long, width: Int): Unit = {
+    ensureCapacity(width)
+    var v = value
+    var i = width - 1
+    while (i >= 0) {
+      buffer(count + i) = ('0' + (v % 10)).toByte
+      v /= 10
+      i -= 1
+    }
+    count += width
+  }
+
+  protected final def writeDecimal(value: Decimal): Unit = {
+    if (value.precision > Decimal.MAX_LONG_DIGITS || value.scale < 0) {
+      writeBytes(value.toJavaBigDecimal.toPlainString.getBytes(StandardCharsets.US_ASCII))
+      return
+    }
+
+    val unscaled = value.toUnscaledLong
+    val scale = value.scale
+    if (scale == 0) {
+      writeLong(unscaled)
+      return
+    }
+
+    val factor = POWERS_OF_TEN(scale)
+    if (unscaled < 0) {
+      writeByte('-')
+    }
+    val abs = Math.abs(unscaled)
+    writeLong(abs / factor)
+    writeByte('.')
+    writePadded(abs % factor, scale)
+  }
+
+  /** 公元前的年份是否写成 "yyyy-MM-dd BC" 格式(PostgreSQL)，否则按照 ISO 8601 写成负数年份 */
+  protected def bcEraSuffix: Boolean = false
+
+  protected final def writeDate(epochDay: Int): Unit = {
+    if (writeYearMonthDay(epochDay)) {
+      writeBytes(BC_SUFFIX)
+    }
+  }
+
+  // 返回是否需要在末尾写入 BC 后缀
+  private def writeYearMonthDay(epochDay: Int): Boolean = {
+    // http://howardhinnant.github.io/date_algorithms.html#civil_from_days
+    val z = epochDay + 719468L
+    val era = Math.floorDiv(z, 146097L)
+    val doe = z - era * 146097
+    val yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365
+    val doy = doe - (365 * yoe + yoe / 4 - yoe / 100)
+    val mp = (5 * doy + 2) / 153
+    val day = doy - (153 * mp + 2) / 5 + 1
+    val month = if (mp < 10) mp + 3 else mp - 9
+    val year = yoe + era * 400 + (if (month <= 2) 1 else 0)
+
+    // 公元前 1 年为第 0 年
+    val bc = year <= 0 && bcEraSuffix
+    if (bc) {
+      writeYear(1 - year)
+    } else if (year < 0) {
+      writeByte('-')
+      writeYear(-year)
+    } else {
+      writeYear(year)
+    }
+    writeByte('-')
+    writePadded(month, 2)
+    writeByte('-')
+    writePadded(day, 2)
+    bc
+  }
+
+  // 至少 4 位，超过 9999 的年份不截断
+  private def writeYear(year: Long): Unit = {
+    if (year > 9999) writeLong(year) else writePadded(year, 4)
+  }
+
+  // 没有时区的时间，格式: yyyy-MM-dd HH:mm:ss[.SSSSSS]
+  protected final def writeLocalTimestamp(micros: Long): Unit = {
+    val epochDay = Math.floorDiv(micros, MICROS_PER_DAY)
+    val microsOfDay = Math.floorMod(micros, MICROS_PER_DAY)
+    val bc = writeYearMonthDay(epochDay.toInt)
+    writeByte(' ')
+
+    val secondOfDay = microsOfDay / MICROS_PER_SECOND
+    writePadded(secondOfDay / 3600, 2)
+    writeByte(':')
+    writePadded(secondOfDay / 60 % 60, 2)
+    writeByte(':')
+    writePadded(secondOfDay % 60, 2)
+
+    val fraction = microsOfDay % MICROS_PER_SECOND
+    if (fraction != 0) {
+      writeByte('.')
+      writePadded(fraction, 6)
+    }
+    if (bc) {
+      writeBytes(BC_SUFFIX)
+    }
+  }
+
+  // 和 java.sql.Timestamp 保持一致，使用 JVM 默认时区
+  protected final def writeTimestamp(micros: Long): Unit = {
+    val epochSecond = Math.floorDiv(micros, MICROS_PER_SECOND)
+    // 时区切换都在 15 分钟整数倍，同一个区间内复用偏移量
+    val bucket = Math.floorDiv(epochSecond, 900L)
+    if (bucket != cachedOffsetBucket) {
+      cachedOffsetSeconds = zoneRules.getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds
+      cachedOffsetBucket = bucket
+    }
+    writeLocalTimestamp(micros + cachedOffsetSeconds * MICROS_PER_SECOND)
+  }
+
+  protected final def writeHex(bytes: Array[Byte]): Unit = {
+    ensureCapacity(bytes.length * 2)
+    var i = 0
+    while (i < bytes.length) {
+      buffer(count) = HEX_DIGITS((bytes(i) >> 4) & 0x0f)
+      buffer(count + 1) = HEX_DIGITS(bytes(i) & 0x0f)
+      count += 2
+      i += 1
+    }
+  }
+
+  /** 按照字段类型写入非 null 值，字符串类型和不支持的类型通过 writeString 转义 */
+  protected final def writeValue(row: InternalRow, ordinal: Int, dataType: DataType): Unit = {
+    dataType match {
+      case BooleanType => writeBoolean(row.getBoolean(ordinal))
+      case ByteType => writeLong(row.getByte(ordinal))
+      case ShortType => writeLong(row.getShort(ordinal))
+      case IntegerType => writeLong(row.getInt(ordinal))
+      case LongType => writeLong(row.getLong(ordinal))
+      case FloatType => writeAscii(java.lang.Float.toString(row.getFloat(ordinal)))
+      case DoubleType => writeAscii(java.lang.Double.toString(row.getDouble(ordinal)))
+      case t: DecimalType => writeDecimal(row.getDecimal(ordinal, t.precision, t.scale))
+      case DateType => writeDate(row.getInt(ordinal))
+      case TimestampType => writeTimestamp(row.getLong(ordinal))
+      case TimestampNTZType => writeLocalTimestamp(row.getLong(ordinal))
+      case StringType => writeString(row.getUTF8String(ordinal))
+      case BinaryType => writeBinary(row.getBinary(ordinal))
+      case _ => writeString(UTF8String.fromString(String.valueOf(row.get(ordinal, dataType))))
+    }
+  }
+
+  protected def writeBoolean(value: Boolean): Unit = {
+    writeBytes(if (value) TRUE_BYTES else FALSE_BYTES)
+  }
+
+  /** 写入字符串，子类按照格式转义 */
+  protected def writeString(value: UTF8String): Unit
+
+  protected def writeBinary(value: Array[Byte]): Unit
+
+  private def writeAscii(value: String): Unit = {
+    val length = value.length
+    ensureCapacity(length)
+    var i = 0
+    while (i < length) {
+      buffer(count + i) = value.charAt(i).toByte
+      i += 1
+    }
+    count += length
+  }
+}
+
+object RowEncodingInputStream {
+
+  private val INITIAL_BUFFER_SIZE = 128 * 1024
+
+  private val FLUSH_SIZE = 64 * 1024
+
+  private val MICROS_PER_SECOND = 1000000L
+
+  private val MICROS_PER_DAY = 86400L * MICROS_PER_SECOND
+
+  private val LONG_MIN_VALUE = Long.MinValue.toString.getBytes(StandardCharsets.US_ASCII)
+
+  private val TRUE_BYTES = "t".getBytes(StandardCharsets.US_ASCII)
+
+  private val FALSE_BYTES = "f".getBytes(StandardCharsets.US_ASCII)
+
+  private val BC_SUFFIX = " BC".getBytes(StandardCharsets.US_ASCII)
+
+  private val HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII)
+
+  private val POWERS_OF_TEN = Array.iterate(1L, Decimal.MAX_LONG_DIGITS + 1)(_ * 10)
+}
@@ -0,0 +1,126 @@
+package com.superior.datatunnel.plugin.jdbc.support
+
+import com.gitee.melin.bee.util.JdbcUtils
+import com.microsoft.sqlserver.jdbc.{ISQLServerBulkData, SQLServerBulkCopy, SQLServerBulkCopyOptions}
+import org.apache.spark.internal.Logging
+import org.apache.spark.sql.execution.datasources.jdbc.JdbcOptionsInWrite
+import org.apache.spark.sql.jdbc.JdbcDialects
+import org.apache.spark.sql.types._
+import org.apache.spark.sql.{DataFrame, Row}
+
+import java.sql.Types
+import java.time.{Instant, LocalDate, LocalDateTime}
+import java.util
+
+object SqlServerHelper extends Logging {
+
+  /** 每个分区使用 SQLServerBulkCopy 写入，分区数据在一个事务中提交 */
+  def bulkCopy(
+      parameters: Map[String, String]
+  )(df: DataFrame, table: String, columns: Array[String]): Unit = {
+    val schema = df.schema
+    val tableLock = parameters.getOrElse("tableLock", "true").toBoolean
+    df.rdd.foreachPartition { rows =>
+      val options = new JdbcOptionsInWrite(parameters)
+      val dialect = JdbcDialects.get(options.url)
+      val conn = dialect.createConnectionFactory(options)(-1)
+      var bulkCopy: SQLServerBulkCopy = null
+      try {
+        conn.setAutoCommit(false)
+        bulkCopy = new SQLServerBulkCopy(conn)
+
+        val copyOptions = new SQLServerBulkCopyOptions()
+        copyOptions.setBatchSize(options.batchSize)
+        copyOptions.setTableLock(tableLock)
+        copyOptions.setBulkCopyTimeout(options.queryTimeout)
+        copyOptions.setKeepNulls(true)
+        // 保留写入的自增字段值，否则服务端重新生成，staging 表 MERGE 时自增主键匹配到错误的记录
+        copyOptions.setKeepIdentity(true)
+        bulkCopy.setBulkCopyOptions(copyOptions)
+        bulkCopy.setDestinationTableName(table)
+        columns.zipWithIndex.foreach { case (column, index) =>
+          bulkCopy.addColumnMapping(index + 1, column)
+        }
+
+        logInfo(s"bulk copy to $table, columns: ${columns.mkString(",")}")
+        bulkCopy.writeToServer(new RowBulkData(rows, schema))
+        conn.commit()
+      } catch {
+        case e: Throwable =>
+          conn.rollback()
+          throw e
+      } finally {
+        if (bulkCopy != null) bulkCopy.close()
+        JdbcUtils.closeConnection(conn)
+      }
+    }
+  }
+
+  /** 分区数据适配为 ISQLServerBulkData，按照 spark 类型提供字段元数据 */
+  private class RowBulkData(rows: Iterator[Row], schema: StructType) extends ISQLServerBulkData {
+
+    private val fields = schema.fields
+
+    private val values = new Array[AnyRef](fields.length)
+
+    override def getColumnOrdinals: util.Set[Integer] = {
+      val ordinals = new util.LinkedHashSet[Integer]()
+      for (i <- 1 to fields.length) ordinals.add(i)
+      ordinals
+    }
+
+    override def getColumnName(column: Int): String = fields(column - 1).name
+
+    override def getColumnType(column: Int): Int = fields(column - 1).dataType match {
+      case BooleanType => Types.BIT
+      case ByteType => Types.TINYINT
+      case ShortType => Types.SMALLINT
+      case IntegerType => Types.INTEGER
+      case LongType => Types.BIGINT
+      case FloatType => Types.REAL
+      case DoubleType => Types.DOUBLE
+      case _: DecimalType => Types.DECIMAL
+      case BinaryType => Types.VARBINARY
+      case DateType => Types.DATE
+      case TimestampType | TimestampNTZType => Types.TIMESTAMP
+      case _ => Types.NVARCHAR
+    }
+
+    override def getPrecision(column: Int): Int = fields(column - 1).dataType match {
+      case t: DecimalType => t.precision
+      case TimestampType | TimestampNTZType => 27
+      case _: NumericType | BooleanType | DateType => 0
+      case _ => Int.MaxValue
+    }
+
+    override def getScale(column: Int): Int = fields(column - 1).dataType match {
+      case t: DecimalType => t.scale
+      case TimestampType | TimestampNTZType => 6
+      case _ => 0
+    }
+
+    override def next(): Boolean = rows.hasNext
+
+    override def getRowData: Array[AnyRef] = {
+      val row = rows.next()
+      var i = 0
+      while (i < values.length) {
+        values(i) = if (row.isNullAt(i)) null else convert(row.get(i).asInstanceOf[AnyRef])
+        i += 1
+      }
+      values
+    }
+
+    private def convert(value: AnyRef): AnyRef = value match {
+      case date: LocalDate => java.sql.Date.valueOf(date)
+      case instant: Instant => java.sql.Timestamp.from(instant)
+      case dateTime: LocalDateTime => java.sql.Timestamp.valueOf(dateTime)
+      case decimal: java.math.BigDecimal => decimal
+      case v: java.lang.Boolean => v
+      case v: java.lang.Number => v
+      case v: java.util.Date => v
+      case v: Array[Byte] => v
+      case v => v.toString
+    }
+  }
+}
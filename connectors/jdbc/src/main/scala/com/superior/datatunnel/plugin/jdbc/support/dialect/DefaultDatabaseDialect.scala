@@ -2,8 +2,10 @@ package com.superior.datatunnel.plugin.jdbc.support.dialect
 
 import com.gitee.melin.bee.core.jdbc.relational.DatabaseVersion
 import com.gitee.melin.bee.util.JdbcUtils
-import com.superior.datatunnel.api.DataSourceType
+import com.superior.datatunnel.api.{DataSourceType, DataTunnelException}
 import com.superior.datatunnel.plugin.jdbc.support.JdbcDialectUtils._
+import com.superior.datatunnel.plugin.jdbc.support.{JdbcCommitLog, MultiRowInsertHelper, ParallelWriteHelper}
+import io.github.melin.jobserver.spark.api.LogUtils
 import org.apache.commons.lang3.StringUtils
 import org.apache.spark.internal.Logging
 import org.apache.spark.sql.DataFrame
@@ -85,6 +87,48 @@ class DefaultDatabaseDialect(
     s"INSERT INTO $table (${columns.mkString(",")}) VALUES ($placeholders)"
   }
 
+  // 多行 insert 单个语句的参数数量上限，0 表示不使用多行 insert。mysql、postgresql 驱动支持 batch 重写，不需要多行语句
+  protected def maxInsertParameters: Int = dataSourceType match {
+    case DataSourceType.SQLSERVER => 2000 // 最多 2100 个参数
+    case DataSourceType.ORACLE | DataSourceType.DB2 | DataSourceType.DAMENG => 32767
+    case _ => 0
+  }
+
+  // sqlserver VALUES 最多 1000 行
+  protected def maxInsertRows: Int = dataSourceType match {
+    case DataSourceType.SQLSERVER => 1000
+    case _ => Int.MaxValue
+  }
+
+  // oracle INSERT ALL 所有 INTO 子句的目标字段总数不能超过 999 (ORA-24335)
+  protected def maxInsertColumns: Int = dataSourceType match {
+    case DataSourceType.ORACLE => 999
+    case _ => Int.MaxValue
+  }
+
+  def getMultiRowInsertStatement(table: String, columns: Array[String], rows: Int): String = {
+    val columnList = columns.mkString(",")
+    val placeholders = columns.map(_ => "?").mkString("(", ",", ")")
+    if (dataSourceType == DataSourceType.ORACLE) {
+      val into = s"\n    INTO $table ($columnList) VALUES $placeholders"
+      s"INSERT ALL${into * rows}\nSELECT 1 FROM DUAL"
+    } else {
+      s"INSERT INTO $table ($columnList) VALUES " + Seq.fill(rows)(placeholders).mkString(",")
+    }
+  }
+
+  // 每个多行 insert 语句的记录数，等于 1 时使用 jdbc batch
+  private[dialect] def rowsPerInsertStatement(rddSchema: StructType, batchSize: Int): Int = {
+    val multiRowInsert = options.parameters.getOrElse("multiRowInsert", "true").toBoolean
+    if (!multiRowInsert || maxInsertParameters <= 0 || !MultiRowInsertHelper.isSupportedSchema(rddSchema)) {
+      1
+    } else {
+      val numFields = Math.max(1, rddSchema.fields.length)
+      val maxRows = Math.min(maxInsertParameters, maxInsertColumns) / numFields
+      Math.max(1, Math.min(Math.min(batchSize, maxInsertRows), maxRows))
+    }
+  }
+
   def getUpsertStatement(
       destTableName: String,
       rddSchema: StructType,
@@ -112,7 +156,7 @@ class DefaultDatabaseDialect(
     }
   }
 
-  private def insertTable(
+  protected def insertTable(
       df: DataFrame,
       tableSchema: Option[StructType],
       options: JdbcOptionsInWrite
@@ -124,23 +168,84 @@ class DefaultDatabaseDialect(
     val batchSize = options.batchSize
     val isolationLevel = options.isolationLevel
 
-    val repartitionedDF = options.numPartitions match {
-      case Some(n) if n <= 0 =>
-        throw invalidJdbcNumPartitionsError(n, JDBCOptions.JDBC_NUM_PARTITIONS)
-      case Some(n) if n < df.rdd.getNumPartitions => df.coalesce(n)
-      case _                                      => df
-    }
-    repartitionedDF.rdd.foreachPartition { iterator =>
-      savePartition(
-        table,
-        iterator,
-        rddSchema,
-        insertStmt,
-        batchSize,
-        jdbcDialect,
-        isolationLevel,
-        options
-      )
+    val repartitionedDF = repartition(df, options)
+    val writerThreads = getWriterThreads(options)
+
+    val rowsPerStatement = rowsPerInsertStatement(rddSchema, batchSize)
+    val exactlyOnce = options.parameters.getOrElse("exactlyOnce", "false").toBoolean
+    if (exactlyOnce) {
+      if (!MultiRowInsertHelper.isSupportedSchema(rddSchema)) {
+        throw new DataTunnelException("exactlyOnce 写入只支持基本数据类型字段")
+      }
+      if (writerThreads > 1) {
+        LogUtils.warn("exactlyOnce 写入时每个分区一个事务，忽略 writerThreads")
+      }
+
+      val conn = jdbcDialect.createConnectionFactory(options)(-1)
+      try {
+        val commitLog = JdbcCommitLog.prepare(
+          conn,
+          table,
+          options.parameters.getOrElse("commitLogTable", ""),
+          dataSourceType,
+          jdbcDialect
+        )
+        LogUtils.info(s"exactly once insert, commit log table: ${commitLog.table}, job id: ${commitLog.jobId}")
+
+        val columns = getColumns(rddSchema, tableSchema)
+        val buildStatement: Int => String =
+          if (rowsPerStatement > 1) rowCount => getMultiRowInsertStatement(table, columns, rowCount)
+          else _ => insertStmt
+        repartitionedDF.rdd.foreachPartition { iterator =>
+          MultiRowInsertHelper.savePartition(
+            iterator,
+            rddSchema,
+            rowsPerStatement,
+            batchSize,
+            buildStatement,
+            jdbcDialect,
+            isolationLevel,
+            options,
+            commitLog
+          )
+        }
+
+        commitLog.cleanup(conn)
+      } finally {
+        JdbcUtils.closeConnection(conn)
+      }
+    } else if (rowsPerStatement > 1) {
+      val columns = getColumns(rddSchema, tableSchema)
+      logInfo(s"multi-row insert, rows per statement: $rowsPerStatement")
+      repartitionedDF.rdd.foreachPartition { iterator =>
+        ParallelWriteHelper.writePartition(iterator, writerThreads, batchSize) { rows =>
+          MultiRowInsertHelper.savePartition(
+            rows,
+            rddSchema,
+            rowsPerStatement,
+            batchSize,
+            rowCount => getMultiRowInsertStatement(table, columns, rowCount),
+            jdbcDialect,
+            isolationLevel,
+            options
+          )
+        }
+      }
+    } else {
+      repartitionedDF.rdd.foreachPartition { iterator =>
+        ParallelWriteHelper.writePartition(iterator, writerThreads, batchSize) { rows =>
+          savePartition(
+            table,
+            rows,
+            rddSchema,
+            insertStmt,
+            batchSize,
+            jdbcDialect,
+            isolationLevel,
+            options
+          )
+        }
+      }
     }
   }
 
@@ -158,24 +263,37 @@ class DefaultDatabaseDialect(
     val batchSize = options.batchSize
     val isolationLevel = options.isolationLevel
 
-    val repartitionedDF = options.numPartitions match {
+    val repartitionedDF = repartition(df, options)
+    val writerThreads = getWriterThreads(options)
+    repartitionedDF.rdd.foreachPartition { iterator =>
+      ParallelWriteHelper.writePartition(iterator, writerThreads, batchSize) { rows =>
+        savePartition(
+          table,
+          rows,
+          rddSchema,
+          upsertStmt,
+          batchSize,
+          jdbcDialect,
+          isolationLevel,
+          options
+        )
+      }
+    }
+  }
+
+  protected def repartition(df: DataFrame, options: JdbcOptionsInWrite): DataFrame = {
+    options.numPartitions match {
       case Some(n) if n <= 0 =>
         throw invalidJdbcNumPartitionsError(n, JDBCOptions.JDBC_NUM_PARTITIONS)
-      case Some(n) if n < df.rdd.getNumPartitions => df.coalesce(n)
-      case _                                      => df
-    }
-    repartitionedDF.rdd.foreachPartition { iterator =>
-      savePartition(
-        table,
-        iterator,
-        rddSchema,
-        upsertStmt,
-        batchSize,
-        jdbcDialect,
-        isolationLevel,
-        options
-      )
+      case _ =>
     }
+
+    val maxConnections = options.parameters.getOrElse("maxConnections", "0").toInt
+    ParallelWriteHelper.rebalance(df, options.numPartitions, maxConnections, getWriterThreads(options))
+  }
+
+  private def getWriterThreads(options: JdbcOptionsInWrite): Int = {
+    Math.max(1, options.parameters.getOrElse("writerThreads", "1").toInt)
   }
 
   def bulkInsertTable(
@@ -199,4 +317,14 @@ class DefaultDatabaseDialect(
       JdbcUtils.closeStatement(statement)
     }
   }
+
+  protected def executeUpdate(conn: Connection, sql: String): Int = {
+    var statement: Statement = null
+    try {
+      statement = conn.createStatement
+      statement.executeUpdate(sql)
+    } finally {
+      JdbcUtils.closeStatement(statement)
+    }
+  }
 }
@@ -1,10 +1,16 @@
 package com.superior.datatunnel.plugin.jdbc.support.dialect
 
+import com.gitee.melin.bee.util.JdbcUtils
 import com.superior.datatunnel.api.{DataSourceType, DataTunnelException}
-import org.apache.spark.sql.execution.datasources.jdbc.JDBCOptions
+import io.github.melin.jobserver.spark.api.LogUtils
+import org.apache.commons.lang3.{RandomStringUtils, StringUtils}
+import org.apache.spark.sql.DataFrame
+import org.apache.spark.sql.execution.datasources.jdbc.{JDBCOptions, JdbcOptionsInWrite}
 import org.apache.spark.sql.jdbc.JdbcDialect
 import org.apache.spark.sql.types.StructType
 
+import java.sql.Connection
+
 class MergeDatabaseDialect(
     options: JDBCOptions,
     jdbcDialect: JdbcDialect,
@@ -61,4 +67,148 @@ class MergeDatabaseDialect(
     builder.append(s"    VALUES ($sql)")
     builder.toString
   }
+
+  override def saveTable(
+      df: DataFrame,
+      tableSchema: Option[StructType],
+      isCaseSensitive: Boolean,
+      options: JdbcOptionsInWrite,
+      writeMode: String,
+      primaryKeys: Array[String]
+  ): Unit = {
+    val stagingUpsert = options.parameters.getOrElse("stagingUpsert", "false").toBoolean
+    if ("upsert" == writeMode && stagingUpsert && isStagingSupported) {
+      stagingUpsertTable(df, tableSchema, options, primaryKeys)
+    } else {
+      super.saveTable(df, tableSchema, isCaseSensitive, options, writeMode, primaryKeys)
+    }
+  }
+
+  private def isStagingSupported: Boolean = {
+    dataSourceType == DataSourceType.ORACLE ||
+    dataSourceType == DataSourceType.SQLSERVER ||
+    dataSourceType == DataSourceType.DB2 ||
+    dataSourceType == DataSourceType.DAMENG
+  }
+
+  /** 数据先批量写入 staging 表，再执行一次 MERGE INTO target USING staging，避免逐行 MERGE。
+    * 临时表数据只在当前会话可见，executor 写入和 driver MERGE 不是同一个连接，所以使用普通表作为 staging 表，任务结束后删除。
+    */
+  private def stagingUpsertTable(
+      df: DataFrame,
+      tableSchema: Option[StructType],
+      options: JdbcOptionsInWrite,
+      keyColumns: Array[String]
+  ): Unit = {
+    if (keyColumns == null || keyColumns.length == 0) {
+      throw new DataTunnelException(
+        s"Cannot write to table ${options.table} with no key fields defined."
+      )
+    }
+
+    val table = options.table
+    val stagingTable = buildStagingTableName(table)
+    val columns = getColumns(df.schema, tableSchema)
+
+    val conn = jdbcDialect.createConnectionFactory(options)(-1)
+    try {
+      var sql = getCreateStagingTableStatement(table, stagingTable, columns)
+      LogUtils.info(s"create staging table: $sql")
+      executeSql(conn, sql)
+
+      try {
+        val stagingDF = dropDuplicateKeys(df, keyColumns)
+        val stagingOptions = new JdbcOptionsInWrite(options.parameters + ("dbtable" -> stagingTable))
+        insertTable(stagingDF, tableSchema, stagingOptions)
+
+        sql = getStagingMergeStatement(table, stagingTable, columns, keyColumns)
+        LogUtils.info(s"merge staging table: \n$sql")
+        val count = executeUpdate(conn, sql)
+        LogUtils.info(s"merge $count rows from $stagingTable to $table")
+      } finally {
+        dropStagingTable(conn, stagingTable)
+      }
+    } finally {
+      JdbcUtils.closeConnection(conn)
+    }
+  }
+
+  /** staging 表中同一个主键有多条记录时 MERGE 会失败(ORA-30926)，按照 key 字段去重。keyColumns 是带引号的字段名 */
+  protected def dropDuplicateKeys(df: DataFrame, keyColumns: Array[String]): DataFrame = {
+    val fieldNames = df.schema.fieldNames
+    val keys = keyColumns.map { key =>
+      val name = StringUtils.strip(key, "\"`[]")
+      fieldNames.find(_.equalsIgnoreCase(name)).getOrElse {
+        throw new DataTunnelException(s"upsert key column $name not found in: ${fieldNames.mkString(",")}")
+      }
+    }
+    df.dropDuplicates(keys)
+  }
+
+  protected def buildStagingTableName(table: String): String = {
+    val items = StringUtils.split(table, ".")
+    val name = jdbcDialect.quoteIdentifier(
+      "dt_stg_" + RandomStringUtils.randomAlphanumeric(8).toLowerCase + "_" + System.currentTimeMillis()
+    )
+    items(items.length - 1) = name
+    items.mkString(".")
+  }
+
+  protected def getCreateStagingTableStatement(
+      table: String,
+      stagingTable: String,
+      columns: Array[String]
+  ): String = {
+    val columnList = columns.mkString(",")
+    dataSourceType match {
+      case DataSourceType.SQLSERVER =>
+        // SELECT INTO 会继承 IDENTITY 属性，写入 staging 表时报错；包含 UNION ALL 时新表不继承 IDENTITY，字段类型不变
+        s"SELECT $columnList INTO $stagingTable FROM $table WHERE 1 = 0\n" +
+          s"UNION ALL SELECT $columnList FROM $table WHERE 1 = 0"
+      case DataSourceType.DB2 =>
+        s"CREATE TABLE $stagingTable AS (SELECT $columnList FROM $table) WITH NO DATA"
+      case DataSourceType.ORACLE =>
+        s"CREATE TABLE $stagingTable NOLOGGING AS SELECT $columnList FROM $table WHERE 1 = 0"
+      case _ =>
+        s"CREATE TABLE $stagingTable AS SELECT $columnList FROM $table WHERE 1 = 0"
+    }
+  }
+
+  def getStagingMergeStatement(
+      table: String,
+      stagingTable: String,
+      columns: Array[String],
+      keyColumns: Array[String]
+  ): String = {
+    val builder = new StringBuilder()
+    builder.append(s"MERGE INTO $table dist\nUSING $stagingTable src\n")
+    builder.append("ON (")
+    builder.append(keyColumns.map(key => s"src.${key} = dist.${key}").mkString(" AND "))
+    builder.append(")\n")
+
+    val updateColumns = columns.filter(!keyColumns.contains(_))
+    if (updateColumns.nonEmpty) {
+      builder.append("WHEN MATCHED THEN\n    UPDATE SET ")
+      builder.append(updateColumns.map(col => s"dist.${col} = src.${col}").mkString(", "))
+      builder.append("\n")
+    }
+    builder.append("WHEN NOT MATCHED THEN\n")
+    builder.append(s"    INSERT (${columns.mkString(",")})\n")
+    builder.append(s"    VALUES (${columns.map(col => s"src.${col}").mkString(",")})")
+
+    // sqlserver MERGE 语句必须以分号结束
+    if (dataSourceType == DataSourceType.SQLSERVER) {
+      builder.append(";")
+    }
+    builder.toString
+  }
+
+  protected def dropStagingTable(conn: Connection, stagingTable: String): Unit = {
+    try {
+      LogUtils.info(s"drop staging table: $stagingTable")
+      executeSql(conn, s"DROP TABLE $stagingTable")
+    } catch {
+      case e: Exception => LogUtils.warn(s"drop staging table $stagingTable failed: ${e.getMessage}")
+    }
+  }
 }
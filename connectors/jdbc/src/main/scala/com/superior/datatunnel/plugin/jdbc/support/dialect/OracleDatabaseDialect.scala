@@ -0,0 +1,171 @@
+package com.superior.datatunnel.plugin.jdbc.support.dialect
+
+import com.gitee.melin.bee.util.JdbcUtils
+import com.superior.datatunnel.api.{DataSourceType, DataTunnelException}
+import com.superior.datatunnel.plugin.jdbc.support.MultiRowInsertHelper
+import io.github.melin.jobserver.spark.api.LogUtils
+import org.apache.commons.lang3.StringUtils
+import org.apache.spark.TaskContext
+import org.apache.spark.sql.DataFrame
+import org.apache.spark.sql.execution.datasources.jdbc.{JDBCOptions, JdbcOptionsInWrite}
+import org.apache.spark.sql.jdbc.JdbcDialect
+
+import java.sql.Connection
+import scala.collection.mutable.ArrayBuffer
+
+class OracleDatabaseDialect(
+    options: JDBCOptions,
+    jdbcDialect: JdbcDialect,
+    dataSourceType: DataSourceType
+) extends MergeDatabaseDialect(options, jdbcDialect, dataSourceType) {
+
+  /** INSERT /*+ APPEND_VALUES */ 直接路径批量写入，关闭自动提交，每 bulkArraySize 条记录 executeBatch 并提交一次。
+    * truncate = true 时写入前非唯一索引设置为 UNUSABLE，写入后 REBUILD；有主键且 truncate = false 时，先写入 staging 表，再 MERGE 到目标表
+    */
+  override def bulkInsertTable(
+      conn: Connection,
+      df: DataFrame,
+      options: JdbcOptionsInWrite,
+      parameters: Map[String, String],
+      primaryKeys: Array[String]
+  ): Unit = {
+    val truncate = parameters("truncate").toBoolean
+    val columnsStr = parameters("columns")
+    val tableId = options.table
+
+    if (!MultiRowInsertHelper.isSupportedSchema(df.schema)) {
+      throw new DataTunnelException("oracle bulkinsert 只支持基本数据类型字段")
+    }
+
+    val columns: Array[String] = if ("*".equals(columnsStr)) {
+      df.schema.fieldNames.map(jdbcDialect.quoteIdentifier)
+    } else {
+      StringUtils.split(columnsStr, ",").map(col => jdbcDialect.quoteIdentifier(col.trim))
+    }
+
+    LogUtils.info(s"table ${tableId} primary keys : ${primaryKeys.mkString(",")}")
+
+    if (truncate) {
+      LogUtils.info(s"prepare truncate table: ${tableId}")
+      executeSql(conn, s"truncate table ${tableId}")
+
+      val indexes = disableIndexes(conn, tableId)
+      try {
+        appendValues(df, options, tableId, columns)
+      } finally {
+        rebuildIndexes(conn, indexes)
+      }
+    } else if (primaryKeys.length == 0) {
+      appendValues(df, options, tableId, columns)
+    } else {
+      val stagingTable = buildStagingTableName(tableId)
+      var sql = getCreateStagingTableStatement(tableId, stagingTable, columns)
+      LogUtils.info(s"create staging table: $sql")
+      executeSql(conn, sql)
+      try {
+        appendValues(dropDuplicateKeys(df, primaryKeys), options, stagingTable, columns)
+
+        sql = getStagingMergeStatement(tableId, stagingTable, columns, primaryKeys)
+        LogUtils.info(s"merge staging table: \n$sql")
+        val count = executeUpdate(conn, sql)
+        LogUtils.info(s"merge $count rows from $stagingTable to $tableId")
+      } finally {
+        dropStagingTable(conn, stagingTable)
+      }
+    }
+  }
+
+  // 直接路径写入持有表级排他锁，并且提交前当前事务不能再次访问该表，所以每批记录提交一次。
+  // 失败重试时已经提交的批次会重复写入，所以分区任务不允许重试
+  private def appendValues(
+      df: DataFrame,
+      options: JdbcOptionsInWrite,
+      table: String,
+      columns: Array[String]
+  ): Unit = {
+    val rddSchema = df.schema
+    val arraySize = Math.max(1, options.parameters.getOrElse("bulkArraySize", "10000").toInt)
+    val insertStmt = s"INSERT /*+ APPEND_VALUES */ INTO $table (${columns.mkString(",")}) " +
+      s"VALUES (${columns.map(_ => "?").mkString(",")})"
+    LogUtils.info(s"direct path insert sql: $insertStmt, array size: $arraySize")
+
+    repartition(df, options).rdd.foreachPartition { iterator =>
+      val context = TaskContext.get()
+      if (context.attemptNumber() > 0) {
+        throw new DataTunnelException(
+          s"oracle bulkinsert 每批记录单独提交，分区 ${context.partitionId()} 重试会重复写入已提交的记录，请清理数据后重新执行"
+        )
+      }
+      MultiRowInsertHelper.savePartition(
+        iterator,
+        rddSchema,
+        1,
+        arraySize,
+        _ => insertStmt,
+        jdbcDialect,
+        Connection.TRANSACTION_READ_COMMITTED,
+        options,
+        commitEachBatch = true
+      )
+    }
+  }
+
+  // 唯一索引 UNUSABLE 时直接路径写入会失败，分区索引需要按分区 REBUILD，只处理非分区的非唯一索引
+  private def disableIndexes(conn: Connection, tableId: String): Seq[String] = {
+    val items = StringUtils.split(tableId, ".")
+    // 表名没有 schema 时使用当前会话的 schema
+    val schemaName = if (items.length > 1) Some(toDictionaryName(items(0))) else None
+    val tableName = toDictionaryName(items(items.length - 1))
+    val ownerClause = if (schemaName.isDefined) "?" else "SYS_CONTEXT('USERENV', 'CURRENT_SCHEMA')"
+    val indexes = ArrayBuffer[String]()
+    val stmt = conn.prepareStatement(
+      s"SELECT owner, index_name FROM all_indexes WHERE table_owner = $ownerClause AND table_name = ? " +
+        "AND uniqueness = 'NONUNIQUE' AND partitioned = 'NO' AND index_type IN ('NORMAL', 'BITMAP')"
+    )
+    try {
+      var index = 1
+      schemaName.foreach { name =>
+        stmt.setString(index, name)
+        index += 1
+      }
+      stmt.setString(index, tableName)
+      val rs = stmt.executeQuery()
+      try {
+        while (rs.next()) {
+          indexes += jdbcDialect.quoteIdentifier(rs.getString(1)) + "." +
+            jdbcDialect.quoteIdentifier(rs.getString(2))
+        }
+      } finally {
+        rs.close()
+      }
+    } finally {
+      JdbcUtils.closeStatement(stmt)
+    }
+
+    if (indexes.isEmpty) {
+      LogUtils.info(s"table $tableId has no non-unique index to disable")
+    }
+    indexes.foreach { index =>
+      LogUtils.info(s"disable index: $index")
+      executeSql(conn, s"ALTER INDEX $index UNUSABLE")
+    }
+    indexes
+  }
+
+  // 数据字典中带引号的标识符保持原样，不带引号的标识符为大写
+  private def toDictionaryName(identifier: String): String = {
+    val name = identifier.trim
+    if (name.length > 1 && name.startsWith("\"") && name.endsWith("\"")) {
+      name.substring(1, name.length - 1)
+    } else {
+      name.toUpperCase
+    }
+  }
+
+  private def rebuildIndexes(conn: Connection, indexes: Seq[String]): Unit = {
+    indexes.foreach { index =>
+      LogUtils.info(s"rebuild index: $index")
+      executeSql(conn, s"ALTER INDEX $index REBUILD")
+    }
+  }
+}
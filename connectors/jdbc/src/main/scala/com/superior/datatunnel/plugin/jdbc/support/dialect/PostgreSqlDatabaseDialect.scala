@@ -1,10 +1,11 @@
 package com.superior.datatunnel.plugin.jdbc.support.dialect
 
+import com.gitee.melin.bee.util.JdbcUtils
 import com.superior.datatunnel.api.{DataSourceType, DataTunnelException}
 import com.superior.datatunnel.plugin.jdbc.support.PostgreSqlHelper.buildUpsertPGSql
 import com.superior.datatunnel.plugin.jdbc.support.{JdbcDialectUtils, PostgreSqlHelper}
 import io.github.melin.jobserver.spark.api.LogUtils
-import org.apache.commons.lang3.StringUtils
+import org.apache.commons.lang3.{RandomStringUtils, StringUtils}
 import org.apache.spark.sql.DataFrame
 import org.apache.spark.sql.execution.datasources.jdbc.{JDBCOptions, JdbcOptionsInWrite}
 import org.apache.spark.sql.jdbc.JdbcDialect
@@ -94,12 +95,7 @@ class PostgreSqlDatabaseDialect(
       s"table ${tableId} primary keys : ${primaryKeys.mkString(",")}"
     )
 
-    // 创建临时表名
-    val items = StringUtils.split(tableId, ".")
-    var name = items(items.length - 1)
-    name = "datatunnel_temp_" + name + "_001"
-    items(items.length - 1) = name
-    val tempTableName = items.mkString(".")
+    val tempTableName = buildTempTableName(tableId)
     val tempTableMode =
       primaryKeys.length > 0 && !truncate // 设置主键，且truncate = false，才需要创建临时表
 
@@ -109,36 +105,99 @@ class PostgreSqlDatabaseDialect(
       executeSql(conn, sql)
     }
 
-    if (tempTableMode) {
-      LogUtils.info(s"prepare temp table: ${tempTableName}")
-      var sql =
-        s"CREATE TABLE if not exists ${tempTableName} (LIKE ${tableId} EXCLUDING CONSTRAINTS)";
-      executeSql(conn, sql)
-
-      LogUtils.info(s"truncat temp table: ${tempTableName}")
-      sql = s"TRUNCATE TABLE ${tempTableName}";
-      executeSql(conn, sql)
+    if (!tempTableMode) {
+      PostgreSqlHelper.copyIn(parameters)(df, tableId)
+      return
     }
 
-    if (tempTableMode) {
+    // 每个任务使用唯一的临时表，并发写入同一个表时互不影响，UNLOGGED 表不写 WAL
+    LogUtils.info(s"prepare temp table: ${tempTableName}")
+    executeSql(conn, s"CREATE UNLOGGED TABLE ${tempTableName} (LIKE ${tableId} INCLUDING DEFAULTS)")
+    try {
       // 先导入临时表
       PostgreSqlHelper.copyIn(parameters)(df, tempTableName)
-    } else {
-      PostgreSqlHelper.copyIn(parameters)(df, tableId)
-    }
+      executeSql(conn, s"ANALYZE ${tempTableName}")
 
-    if (tempTableMode) {
       // 从临时表导入
-      var sql =
-        buildUpsertPGSql(tableId, tempTableName, columnNames, primaryKeys)
-      LogUtils.info(
-        s"import data from ${tempTableName} to ${tableId}, sql: \n${sql}"
-      );
-      executeSql(conn, sql)
-
+      val mergeChunks = parameters.getOrElse("mergeChunks", "1").toInt
+      if (mergeChunks > 1) {
+        chunkedUpsert(conn, tableId, tempTableName, columnNames, primaryKeys, mergeChunks)
+      } else {
+        val sql = buildUpsertPGSql(tableId, tempTableName, columnNames, primaryKeys)
+        LogUtils.info(s"import data from ${tempTableName} to ${tableId}, sql: \n${sql}")
+        executeSql(conn, sql)
+      }
+    } finally {
       LogUtils.info(s"drop temp table ${tempTableName}")
-      sql = s"drop table $tempTableName";
-      executeSql(conn, sql)
+      executeSql(conn, s"DROP TABLE IF EXISTS $tempTableName")
+    }
+  }
+
+  // datatunnel_temp_<表名>_<随机字符>，postgresql 标识符最长 63 个字符
+  private def buildTempTableName(tableId: String): String = {
+    val items = StringUtils.split(tableId, ".")
+    val name = StringUtils.strip(items(items.length - 1), "\"")
+    val suffix = RandomStringUtils.randomAlphanumeric(8).toLowerCase
+    items(items.length - 1) = jdbcDialect.quoteIdentifier(
+      "datatunnel_temp_" + StringUtils.left(name, 63 - 25) + "_" + suffix
+    )
+    items.mkString(".")
+  }
+
+  // 按照第一个主键字段 NTILE 分为 mergeChunks 个区间，每个区间单独执行 upsert 并提交，缩短单个语句持有锁的时间
+  private def chunkedUpsert(
+      conn: Connection,
+      tableId: String,
+      tempTableName: String,
+      columnNames: java.util.List[String],
+      primaryKeys: Array[String],
+      mergeChunks: Int
+  ): Unit = {
+    val keyColumn = primaryKeys(0)
+    val boundaries = new java.util.ArrayList[AnyRef]()
+    val statement = conn.createStatement()
+    try {
+      val rs = statement.executeQuery(
+        s"SELECT max($keyColumn) FROM (SELECT $keyColumn, ntile($mergeChunks) OVER (ORDER BY $keyColumn) AS bucket " +
+          s"FROM $tempTableName) t GROUP BY bucket ORDER BY 1"
+      )
+      while (rs.next()) {
+        boundaries.add(rs.getObject(1))
+      }
+    } finally {
+      JdbcUtils.closeStatement(statement)
+    }
+
+    LogUtils.info(s"import data from ${tempTableName} to ${tableId}, chunks: ${boundaries.size()}")
+    for (i <- 0 until boundaries.size()) {
+      // 最后一个区间不设置上限
+      val condition = if (i == 0) {
+        s"$keyColumn <= ?"
+      } else if (i == boundaries.size() - 1) {
+        s"$keyColumn > ?"
+      } else {
+        s"$keyColumn > ? AND $keyColumn <= ?"
+      }
+      val sql = buildUpsertPGSql(tableId, tempTableName, columnNames, primaryKeys, condition)
+      if (i == 0) {
+        LogUtils.info(s"chunk upsert sql: \n${sql}")
+      }
+
+      val stmt = conn.prepareStatement(sql)
+      try {
+        if (i == 0) {
+          stmt.setObject(1, boundaries.get(i))
+        } else if (i == boundaries.size() - 1) {
+          stmt.setObject(1, boundaries.get(i - 1))
+        } else {
+          stmt.setObject(1, boundaries.get(i - 1))
+          stmt.setObject(2, boundaries.get(i))
+        }
+        val count = stmt.executeUpdate()
+        LogUtils.info(s"chunk ${i + 1}/${boundaries.size()} upsert ${count} rows")
+      } finally {
+        JdbcUtils.closeStatement(stmt)
+      }
     }
   }
 }
@@ -0,0 +1,78 @@
+package com.superior.datatunnel.plugin.jdbc.support.dialect
+
+import com.superior.datatunnel.api.DataSourceType
+import com.superior.datatunnel.plugin.jdbc.support.{JdbcDialectUtils, SqlServerHelper}
+import io.github.melin.jobserver.spark.api.LogUtils
+import org.apache.commons.lang3.StringUtils
+import org.apache.spark.sql.DataFrame
+import org.apache.spark.sql.execution.datasources.jdbc.{JDBCOptions, JdbcOptionsInWrite}
+import org.apache.spark.sql.jdbc.JdbcDialect
+
+import java.sql.Connection
+import scala.collection.JavaConverters._
+
+class SqlServerDatabaseDialect(
+    options: JDBCOptions,
+    jdbcDialect: JdbcDialect,
+    dataSourceType: DataSourceType
+) extends MergeDatabaseDialect(options, jdbcDialect, dataSourceType) {
+
+  /** SQLServerBulkCopy 批量写入，有主键且 truncate = false 时，先写入 staging 表，再 MERGE 到目标表 */
+  override def bulkInsertTable(
+      conn: Connection,
+      df: DataFrame,
+      options: JdbcOptionsInWrite,
+      parameters: Map[String, String],
+      primaryKeys: Array[String]
+  ): Unit = {
+    val truncate = parameters("truncate").toBoolean
+    val columnsStr = parameters("columns")
+    val schemaName = parameters("schemaName")
+    val tableName = parameters("tableName")
+    val tableId = options.table
+
+    // bulk copy 字段映射使用不带引号的字段名
+    val columnNames: Array[String] = if ("*".equals(columnsStr)) {
+      df.schema.fieldNames
+    } else {
+      StringUtils.split(columnsStr, ",").map(_.trim)
+    }
+
+    LogUtils.info(s"table ${tableId} primary keys : ${primaryKeys.mkString(",")}")
+
+    if (truncate) {
+      LogUtils.info(s"prepare truncate table: ${tableId}")
+      executeSql(conn, s"truncate table ${tableId}")
+    }
+
+    if (primaryKeys.length == 0 || truncate) {
+      SqlServerHelper.bulkCopy(parameters)(df, tableId, columnNames)
+      return
+    }
+
+    val stagingTable = buildStagingTableName(tableId)
+    val quotedColumns = if ("*".equals(columnsStr)) {
+      JdbcDialectUtils
+        .queryColumns(dataSourceType, schemaName, tableName, conn)
+        .asScala
+        .map(col => jdbcDialect.quoteIdentifier(col.name))
+        .toArray
+    } else {
+      columnNames.map(jdbcDialect.quoteIdentifier)
+    }
+
+    var sql = getCreateStagingTableStatement(tableId, stagingTable, quotedColumns)
+    LogUtils.info(s"create staging table: $sql")
+    executeSql(conn, sql)
+    try {
+      SqlServerHelper.bulkCopy(parameters)(dropDuplicateKeys(df, primaryKeys), stagingTable, columnNames)
+
+      sql = getStagingMergeStatement(tableId, stagingTable, quotedColumns, primaryKeys)
+      LogUtils.info(s"merge staging table: \n$sql")
+      val count = executeUpdate(conn, sql)
+      LogUtils.info(s"merge $count rows from $stagingTable to $tableId")
+    } finally {
+      dropStagingTable(conn, stagingTable)
+    }
+  }
+}
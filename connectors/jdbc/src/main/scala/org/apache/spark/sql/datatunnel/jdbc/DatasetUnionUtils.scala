@@ -0,0 +1,24 @@
+package org.apache.spark.sql.datatunnel.jdbc
+
+import org.apache.spark.sql.catalyst.plans.logical.Union
+import org.apache.spark.sql.{Dataset, Row}
+
+import scala.collection.JavaConverters._
+
+/** 多表读取时，把所有表的 Dataset 合并为一个 n-ary Union，避免链式 unionAll 生成很深的执行计划，表数量多时 Catalyst 分析耗时过长
+  */
+object DatasetUnionUtils {
+
+  def unionAll(datasets: java.util.List[Dataset[Row]]): Dataset[Row] = {
+    if (datasets.isEmpty) {
+      throw new IllegalArgumentException("datasets can not be empty")
+    }
+
+    if (datasets.size() == 1) {
+      datasets.get(0)
+    } else {
+      val children = datasets.asScala.map(_.logicalPlan).toList
+      Dataset.ofRows(datasets.get(0).sparkSession, Union(children))
+    }
+  }
+}
@@ -0,0 +1,202 @@
+package org.apache.spark.sql.datatunnel.jdbc
+
+import org.apache.spark.internal.Logging
+import org.apache.spark.sql.catalyst.util.DateTimeUtils
+import org.apache.spark.sql.connector.read.PartitionReader
+import org.apache.spark.sql.execution.datasources.jdbc.JDBCOptions
+import org.apache.spark.sql.execution.vectorized.{OnHeapColumnVector, WritableColumnVector}
+import org.apache.spark.sql.jdbc.{JdbcDialect, JdbcDialects}
+import org.apache.spark.sql.types._
+import org.apache.spark.sql.vectorized.{ColumnVector, ColumnarBatch}
+
+import java.nio.charset.StandardCharsets
+import java.sql.{Connection, PreparedStatement, ResultSet}
+import scala.collection.JavaConverters._
+
+/** 按照字段类型预先生成 setter，ResultSet 读取的值直接写入 OnHeapColumnVector，每次读取 batchSize 条记录
+  */
+class JdbcColumnarPartitionReader(
+    schema: StructType,
+    parameters: Map[String, String],
+    partition: JdbcColumnarPartition
+) extends PartitionReader[ColumnarBatch]
+    with Logging {
+
+  private val options = JdbcColumnarSource.jdbcOptions(parameters)
+
+  private val batchSize = parameters.getOrElse(JdbcColumnarSource.BATCH_SIZE, "4096").toInt
+
+  private val dialect: JdbcDialect = JdbcDialects.get(options.url)
+
+  private val vectors: Array[OnHeapColumnVector] = OnHeapColumnVector.allocateColumns(batchSize, schema)
+
+  private val batch = new ColumnarBatch(vectors.map(_.asInstanceOf[ColumnVector]))
+
+  private val setters: Array[JdbcColumnarPartitionReader.ValueSetter] =
+    schema.fields.map(field => JdbcColumnarPartitionReader.makeSetter(field.dataType, dialect))
+
+  private var conn: Connection = _
+
+  private var stmt: PreparedStatement = _
+
+  private var rs: ResultSet = _
+
+  private var finished = false
+
+  private def open(): Unit = {
+    conn = dialect.createConnectionFactory(options)(partition.index)
+    JdbcColumnarPartitionReader.executeSessionInitStatement(conn, options)
+    dialect.beforeFetch(conn, options.asProperties.asScala.toMap)
+
+    val columns = schema.fieldNames.map(dialect.quoteIdentifier)
+    val sql = JdbcColumnarPartitionReader.selectSql(columns, options.tableOrQuery, partition)
+    logInfo(s"columnar read sql: $sql")
+
+    stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)
+    stmt.setFetchSize(options.fetchSize)
+    stmt.setQueryTimeout(options.queryTimeout)
+    rs = stmt.executeQuery()
+  }
+
+  override def next(): Boolean = {
+    if (finished) {
+      return false
+    }
+    if (rs == null) {
+      open()
+    }
+
+    vectors.foreach(_.reset())
+    var rowId = 0
+    while (rowId < batchSize && rs.next()) {
+      var i = 0
+      while (i < setters.length) {
+        setters(i)(rs, i + 1, vectors(i), rowId)
+        i += 1
+      }
+      rowId += 1
+    }
+
+    if (rowId < batchSize) {
+      finished = true
+    }
+    batch.setNumRows(rowId)
+    rowId > 0
+  }
+
+  override def get(): ColumnarBatch = batch
+
+  override def close(): Unit = {
+    try {
+      if (rs != null) rs.close()
+      if (stmt != null) stmt.close()
+    } finally {
+      if (conn != null) conn.close()
+      batch.close()
+    }
+  }
+}
+
+object JdbcColumnarPartitionReader {
+
+  def executeSessionInitStatement(conn: Connection, options: JDBCOptions): Unit = {
+    options.sessionInitStatement.foreach { sql =>
+      val statement = conn.prepareStatement(sql)
+      try {
+        statement.execute()
+      } finally {
+        statement.close()
+      }
+    }
+  }
+
+  def selectSql(columns: Array[String], table: String, partition: JdbcColumnarPartition): String = {
+    val columnList = if (columns.isEmpty) "1" else columns.mkString(",")
+    val where =
+      if (partition.whereClause == null || partition.whereClause.trim.isEmpty) ""
+      else s" WHERE ${partition.whereClause}"
+    s"SELECT $columnList FROM $table$where"
+  }
+
+  // (resultSet, columnIndex, vector, rowId)
+  type ValueSetter = (ResultSet, Int, WritableColumnVector, Int) => Unit
+
+  def makeSetter(dataType: DataType, dialect: JdbcDialect): ValueSetter = dataType match {
+    case BooleanType =>
+      (rs, pos, vector, rowId) =>
+        val value = rs.getBoolean(pos)
+        if (rs.wasNull()) vector.putNull(rowId) else vector.putBoolean(rowId, value)
+
+    case ByteType =>
+      (rs, pos, vector, rowId) =>
+        val value = rs.getByte(pos)
+        if (rs.wasNull()) vector.putNull(rowId) else vector.putByte(rowId, value)
+
+    case ShortType =>
+      (rs, pos, vector, rowId) =>
+        val value = rs.getShort(pos)
+        if (rs.wasNull()) vector.putNull(rowId) else vector.putShort(rowId, value)
+
+    case IntegerType =>
+      (rs, pos, vector, rowId) =>
+        val value = rs.getInt(pos)
+        if (rs.wasNull()) vector.putNull(rowId) else vector.putInt(rowId, value)
+
+    case LongType =>
+      (rs, pos, vector, rowId) =>
+        val value = rs.getLong(pos)
+        if (rs.wasNull()) vector.putNull(rowId) else vector.putLong(rowId, value)
+
+    case FloatType =>
+      (rs, pos, vector, rowId) =>
+        val value = rs.getFloat(pos)
+        if (rs.wasNull()) vector.putNull(rowId) else vector.putFloat(rowId, value)
+
+    case DoubleType =>
+      (rs, pos, vector, rowId) =>
+        val value = rs.getDouble(pos)
+        if (rs.wasNull()) vector.putNull(rowId) else vector.putDouble(rowId, value)
+
+    case decimalType: DecimalType =>
+      val precision = decimalType.precision
+      val scale = decimalType.scale
+      (rs, pos, vector, rowId) =>
+        val value = rs.getBigDecimal(pos)
+        if (value == null) vector.putNull(rowId)
+        else vector.putDecimal(rowId, Decimal(value, precision, scale), precision)
+
+    case StringType =>
+      (rs, pos, vector, rowId) =>
+        val value = rs.getString(pos)
+        if (value == null) vector.putNull(rowId)
+        else vector.putByteArray(rowId, value.getBytes(StandardCharsets.UTF_8))
+
+    case BinaryType =>
+      (rs, pos, vector, rowId) =>
+        val value = rs.getBytes(pos)
+        if (value == null) vector.putNull(rowId) else vector.putByteArray(rowId, value)
+
+    case DateType =>
+      (rs, pos, vector, rowId) =>
+        val value = rs.getDate(pos)
+        if (value == null) vector.putNull(rowId) else vector.putInt(rowId, DateTimeUtils.fromJavaDate(value))
+
+    case TimestampType =>
+      (rs, pos, vector, rowId) =>
+        val value = rs.getTimestamp(pos)
+        if (value == null) vector.putNull(rowId)
+        else vector.putLong(rowId, DateTimeUtils.fromJavaTimestamp(dialect.convertJavaTimestampToTimestamp(value)))
+
+    case TimestampNTZType =>
+      (rs, pos, vector, rowId) =>
+        val value = rs.getTimestamp(pos)
+        if (value == null) vector.putNull(rowId)
+        else {
+          val localDateTime = dialect.convertJavaTimestampToTimestampNTZ(value)
+          vector.putLong(rowId, DateTimeUtils.localDateTimeToMicros(localDateTime))
+        }
+
+    case _ =>
+      throw new IllegalArgumentException(s"Unsupported type ${dataType.catalogString}")
+  }
+}
@@ -0,0 +1,126 @@
+package org.apache.spark.sql.datatunnel.jdbc
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.superior.datatunnel.api.DataTunnelException
+import org.apache.spark.sql.SparkSession
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.connector.read._
+import org.apache.spark.sql.execution.datasources.jdbc.{JDBCPartition, JDBCRDD, JDBCRelation}
+import org.apache.spark.sql.jdbc.JdbcDialects
+import org.apache.spark.sql.sources.Filter
+import org.apache.spark.sql.types._
+import org.apache.spark.sql.vectorized.ColumnarBatch
+
+class JdbcColumnarScan(
+    tableSchema: StructType,
+    requiredSchema: StructType,
+    pushedFilters: Array[Filter],
+    parameters: Map[String, String]
+) extends Scan
+    with Batch {
+
+  override def readSchema(): StructType = requiredSchema
+
+  override def description(): String = {
+    super.description() + ", PushedFilters: " + pushedFilters.mkString("[", ", ", "]")
+  }
+
+  override def toBatch: Batch = this
+
+  override def planInputPartitions(): Array[InputPartition] = {
+    val predicates = parameters.get(JdbcColumnarSource.PREDICATES)
+    if (predicates.isDefined) {
+      new ObjectMapper()
+        .readValue(predicates.get, classOf[Array[String]])
+        .zipWithIndex
+        .map { case (predicate, index) => JdbcColumnarPartition(index, whereClause(predicate)) }
+    } else {
+      val sessionState = SparkSession.active.sessionState
+      JDBCRelation
+        .columnPartition(
+          tableSchema,
+          sessionState.conf.resolver,
+          sessionState.conf.sessionLocalTimeZone,
+          JdbcColumnarSource.jdbcOptions(parameters)
+        )
+        .map { partition =>
+          val jdbcPartition = partition.asInstanceOf[JDBCPartition]
+          JdbcColumnarPartition(jdbcPartition.idx, whereClause(jdbcPartition.whereClause))
+        }
+    }
+  }
+
+  private lazy val filterClauses: Array[String] = {
+    val dialect = JdbcDialects.get(JdbcColumnarSource.jdbcOptions(parameters).url)
+    pushedFilters.flatMap(filter => JDBCRDD.compileFilter(filter, dialect))
+  }
+
+  // 下推的过滤条件和切片条件使用 AND 连接
+  private def whereClause(partitionClause: String): String = {
+    val partitionClauses = Option(partitionClause).filter(_.trim.nonEmpty).toSeq
+    (filterClauses ++ partitionClauses).map(clause => s"($clause)").mkString(" AND ")
+  }
+
+  override def createReaderFactory(): PartitionReaderFactory = {
+    requiredSchema.fields.foreach { field =>
+      if (!JdbcColumnarScan.isSupportedType(field.dataType)) {
+        throw new DataTunnelException(s"vectorizedRead not support column ${field.name} type: ${field.dataType}")
+      }
+    }
+    JdbcColumnarReaderFactory(requiredSchema, parameters)
+  }
+}
+
+object JdbcColumnarScan {
+
+  def isSupportedType(dataType: DataType): Boolean = dataType match {
+    case BooleanType | ByteType | ShortType | IntegerType | LongType | FloatType | DoubleType => true
+    case StringType | BinaryType | DateType | TimestampType | TimestampNTZType => true
+    case _: DecimalType => true
+    case _ => false
+  }
+}
+
+case class JdbcColumnarPartition(index: Int, whereClause: String) extends InputPartition
+
+case class JdbcColumnarReaderFactory(schema: StructType, parameters: Map[String, String])
+    extends PartitionReaderFactory {
+
+  override def supportColumnarReads(partition: InputPartition): Boolean = true
+
+  // spark 总是使用列式读取，行读取按行遍历 ColumnarBatch
+  override def createReader(partition: InputPartition): PartitionReader[InternalRow] = {
+    new ColumnarRowPartitionReader(createColumnarReader(partition))
+  }
+
+  override def createColumnarReader(partition: InputPartition): PartitionReader[ColumnarBatch] = {
+    val jdbcPartition = partition.asInstanceOf[JdbcColumnarPartition]
+    if (parameters.getOrElse(JdbcColumnarSource.PG_COPY, "false").toBoolean) {
+      new PgCopyPartitionReader(schema, parameters, jdbcPartition)
+    } else {
+      new JdbcColumnarPartitionReader(schema, parameters, jdbcPartition)
+    }
+  }
+}
+
+class ColumnarRowPartitionReader(reader: PartitionReader[ColumnarBatch]) extends PartitionReader[InternalRow] {
+
+  private var rows: java.util.Iterator[InternalRow] = java.util.Collections.emptyIterator()
+
+  private var current: InternalRow = _
+
+  override def next(): Boolean = {
+    while (!rows.hasNext) {
+      if (!reader.next()) {
+        return false
+      }
+      rows = reader.get().rowIterator()
+    }
+    current = rows.next()
+    true
+  }
+
+  override def get(): InternalRow = current
+
+  override def close(): Unit = reader.close()
+}
@@ -0,0 +1,39 @@
+package org.apache.spark.sql.datatunnel.jdbc
+
+import org.apache.spark.sql.connector.read.{Scan, ScanBuilder, SupportsPushDownFilters, SupportsPushDownRequiredColumns}
+import org.apache.spark.sql.execution.datasources.jdbc.JDBCRDD
+import org.apache.spark.sql.jdbc.JdbcDialects
+import org.apache.spark.sql.sources.Filter
+import org.apache.spark.sql.types.StructType
+
+class JdbcColumnarScanBuilder(tableSchema: StructType, parameters: Map[String, String])
+    extends ScanBuilder
+    with SupportsPushDownFilters
+    with SupportsPushDownRequiredColumns {
+
+  private var requiredSchema: StructType = tableSchema
+
+  private var pushed: Array[Filter] = Array.empty
+
+  // 和 spark jdbc 数据源一致，可以编译为 sql 的过滤条件下推到数据库，其余由 spark 过滤
+  override def pushFilters(filters: Array[Filter]): Array[Filter] = {
+    val options = JdbcColumnarSource.jdbcOptions(parameters)
+    if (!options.pushDownPredicate) {
+      return filters
+    }
+
+    val dialect = JdbcDialects.get(options.url)
+    val (supported, unsupported) = filters.partition(filter => JDBCRDD.compileFilter(filter, dialect).isDefined)
+    pushed = supported
+    unsupported
+  }
+
+  override def pushedFilters(): Array[Filter] = pushed
+
+  override def pruneColumns(requiredSchema: StructType): Unit = {
+    val names = requiredSchema.fieldNames.toSet
+    this.requiredSchema = StructType(tableSchema.fields.filter(field => names.contains(field.name)))
+  }
+
+  override def build(): Scan = new JdbcColumnarScan(tableSchema, requiredSchema, pushed, parameters)
+}
@@ -0,0 +1,47 @@
+package org.apache.spark.sql.datatunnel.jdbc
+
+import org.apache.spark.sql.catalyst.util.CaseInsensitiveMap
+import org.apache.spark.sql.connector.catalog.{Table, TableProvider}
+import org.apache.spark.sql.connector.expressions.Transform
+import org.apache.spark.sql.execution.datasources.jdbc.{JDBCOptions, JDBCRDD}
+import org.apache.spark.sql.sources.DataSourceRegister
+import org.apache.spark.sql.types.StructType
+import org.apache.spark.sql.util.CaseInsensitiveStringMap
+
+import scala.collection.JavaConverters._
+
+/** DataSource V2 jdbc 读取，ResultSet 直接写入 ColumnarBatch，避免逐行创建 GenericInternalRow，下游 parquet/orc 写入可以直接使用列式数据
+  */
+class JdbcColumnarSource extends TableProvider with DataSourceRegister {
+
+  override def shortName(): String = JdbcColumnarSource.SHORT_NAME
+
+  override def inferSchema(options: CaseInsensitiveStringMap): StructType = {
+    JDBCRDD.resolveTable(JdbcColumnarSource.jdbcOptions(options.asCaseSensitiveMap().asScala.toMap))
+  }
+
+  override def getTable(
+      schema: StructType,
+      partitioning: Array[Transform],
+      properties: java.util.Map[String, String]
+  ): Table = {
+    new JdbcColumnarTable(schema, properties.asScala.toMap)
+  }
+}
+
+object JdbcColumnarSource {
+  val SHORT_NAME = "datatunnel-jdbc-columnar"
+
+  // 每个切片的过滤条件，json 数组
+  val PREDICATES = "predicates"
+
+  // 每个 ColumnarBatch 记录数
+  val BATCH_SIZE = "columnarBatchSize"
+
+  // postgresql 使用 COPY TO STDOUT (FORMAT binary) 读取
+  val PG_COPY = "pgCopy"
+
+  def jdbcOptions(parameters: Map[String, String]): JDBCOptions = {
+    new JDBCOptions(CaseInsensitiveMap(parameters))
+  }
+}
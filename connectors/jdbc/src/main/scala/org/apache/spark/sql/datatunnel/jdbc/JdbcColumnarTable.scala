@@ -0,0 +1,27 @@
+package org.apache.spark.sql.datatunnel.jdbc
+
+import org.apache.spark.sql.connector.catalog.TableCapability.BATCH_READ
+import org.apache.spark.sql.connector.catalog.{SupportsRead, Table, TableCapability}
+import org.apache.spark.sql.connector.read.ScanBuilder
+import org.apache.spark.sql.types.StructType
+import org.apache.spark.sql.util.CaseInsensitiveStringMap
+
+import java.util
+import scala.collection.JavaConverters._
+
+class JdbcColumnarTable(tableSchema: StructType, parameters: Map[String, String]) extends Table with SupportsRead {
+
+  override def name(): String = JdbcColumnarSource.jdbcOptions(parameters).tableOrQuery
+
+  override def schema(): StructType = tableSchema
+
+  override def capabilities(): util.Set[TableCapability] = JdbcColumnarTable.CAPABILITIES
+
+  override def newScanBuilder(options: CaseInsensitiveStringMap): ScanBuilder = {
+    new JdbcColumnarScanBuilder(tableSchema, parameters ++ options.asCaseSensitiveMap().asScala)
+  }
+}
+
+object JdbcColumnarTable {
+  private val CAPABILITIES = Set(BATCH_READ).asJava
+}
@@ -0,0 +1,270 @@
+package org.apache.spark.sql.datatunnel.jdbc
+
+import org.apache.spark.internal.Logging
+import org.apache.spark.sql.connector.read.PartitionReader
+import org.apache.spark.sql.execution.vectorized.{OnHeapColumnVector, WritableColumnVector}
+import org.apache.spark.sql.jdbc.{JdbcDialect, JdbcDialects}
+import org.apache.spark.sql.types._
+import org.apache.spark.sql.vectorized.{ColumnVector, ColumnarBatch}
+import org.postgresql.PGConnection
+import org.postgresql.copy.PGCopyInputStream
+
+import java.io.{BufferedInputStream, DataInputStream, IOException}
+import java.math.{BigInteger, RoundingMode}
+import java.sql.Connection
+import java.time.{LocalDate, LocalDateTime, ZoneOffset}
+
+/** postgresql 兼容数据库每个切片执行 COPY (SELECT ...) TO STDOUT (FORMAT binary)，二进制数据直接解码写入 ColumnarBatch。
+  * 查询字段按照 spark 类型转换为固定的 postgresql 类型，保证二进制格式确定。
+  */
+class PgCopyPartitionReader(
+    schema: StructType,
+    parameters: Map[String, String],
+    partition: JdbcColumnarPartition
+) extends PartitionReader[ColumnarBatch]
+    with Logging {
+
+  private val options = JdbcColumnarSource.jdbcOptions(parameters)
+
+  private val batchSize = parameters.getOrElse(JdbcColumnarSource.BATCH_SIZE, "4096").toInt
+
+  private val dialect: JdbcDialect = JdbcDialects.get(options.url)
+
+  private val vectors: Array[OnHeapColumnVector] = OnHeapColumnVector.allocateColumns(batchSize, schema)
+
+  private val batch = new ColumnarBatch(vectors.map(_.asInstanceOf[ColumnVector]))
+
+  private val decoders: Array[PgCopyPartitionReader.ValueDecoder] =
+    schema.fields.map(field => PgCopyPartitionReader.makeDecoder(field.dataType))
+
+  private var conn: Connection = _
+
+  private var copyStream: PGCopyInputStream = _
+
+  private var input: DataInputStream = _
+
+  private var finished = false
+
+  private def open(): Unit = {
+    conn = dialect.createConnectionFactory(options)(partition.index)
+    JdbcColumnarPartitionReader.executeSessionInitStatement(conn, options)
+    val columns = schema.fields.map { field =>
+      dialect.quoteIdentifier(field.name) + "::" + PgCopyPartitionReader.pgType(field.dataType)
+    }
+    val selectSql = JdbcColumnarPartitionReader.selectSql(columns, options.tableOrQuery, partition)
+    val sql = s"COPY ($selectSql) TO STDOUT (FORMAT binary)"
+    logInfo(s"copy out sql: $sql")
+
+    copyStream = new PGCopyInputStream(conn.unwrap(classOf[PGConnection]), sql)
+    input = new DataInputStream(new BufferedInputStream(copyStream, 64 * 1024))
+    PgCopyPartitionReader.readHeader(input)
+  }
+
+  override def next(): Boolean = {
+    if (finished) {
+      return false
+    }
+    if (input == null) {
+      open()
+    }
+
+    vectors.foreach(_.reset())
+    var rowId = 0
+    while (rowId < batchSize && !finished) {
+      val fieldCount = input.readShort()
+      if (fieldCount == -1) {
+        finished = true
+      } else {
+        if (fieldCount != decoders.length) {
+          throw new IOException(s"expected ${decoders.length} fields, but got $fieldCount")
+        }
+
+        var i = 0
+        while (i < decoders.length) {
+          val length = input.readInt()
+          if (length == -1) {
+            vectors(i).putNull(rowId)
+          } else {
+            decoders(i)(input, length, vectors(i), rowId)
+          }
+          i += 1
+        }
+        rowId += 1
+      }
+    }
+
+    batch.setNumRows(rowId)
+    rowId > 0
+  }
+
+  override def get(): ColumnarBatch = batch
+
+  override def close(): Unit = {
+    try {
+      if (copyStream != null) copyStream.close()
+    } finally {
+      if (conn != null) conn.close()
+      batch.close()
+    }
+  }
+}
+
+object PgCopyPartitionReader {
+
+  private val SIGNATURE = "PGCOPY\nÿ\r\n\u0000".getBytes("ISO-8859-1")
+
+  // postgresql 日期时间以 2000-01-01 为起点
+  private val PG_EPOCH_DAYS = 10957
+
+  private val PG_EPOCH_MICROS = 946684800000000L
+
+  // infinity、-infinity 在二进制格式中为 int/long 的最大最小值，和 PostgresDialect 一致映射为 9999-12-31 23:59:59 和 0001-01-01
+  private val MAX_DATE_DAYS = LocalDate.of(9999, 12, 31).toEpochDay.toInt
+
+  private val MIN_DATE_DAYS = LocalDate.of(1, 1, 1).toEpochDay.toInt
+
+  private val MAX_TIMESTAMP_MICROS = LocalDateTime.of(9999, 12, 31, 23, 59, 59).toEpochSecond(ZoneOffset.UTC) * 1000000L
+
+  private val MIN_TIMESTAMP_MICROS = LocalDateTime.of(1, 1, 1, 0, 0, 0).toEpochSecond(ZoneOffset.UTC) * 1000000L
+
+  private val NUMERIC_NEG = 0x4000
+
+  // NaN、Infinity、-Infinity 的 sign 高两位都为 1
+  private val NUMERIC_SPECIAL = 0xc000
+
+  private val NBASE = BigInteger.valueOf(10000)
+
+  // (input, length, vector, rowId)
+  type ValueDecoder = (DataInputStream, Int, WritableColumnVector, Int) => Unit
+
+  def pgType(dataType: DataType): String = dataType match {
+    case BooleanType => "boolean"
+    case ByteType | ShortType => "int2"
+    case IntegerType => "int4"
+    case LongType => "int8"
+    case FloatType => "float4"
+    case DoubleType => "float8"
+    case _: DecimalType => "numeric"
+    case StringType => "text"
+    case BinaryType => "bytea"
+    case DateType => "date"
+    case TimestampType => "timestamptz"
+    case TimestampNTZType => "timestamp"
+    case _ => throw new IllegalArgumentException(s"Unsupported type ${dataType.catalogString}")
+  }
+
+  def readHeader(input: DataInputStream): Unit = {
+    val signature = new Array[Byte](SIGNATURE.length)
+    input.readFully(signature)
+    if (!java.util.Arrays.equals(signature, SIGNATURE)) {
+      throw new IOException("invalid binary copy signature")
+    }
+    input.readInt() // flags
+    val extensionLength = input.readInt()
+    input.skipBytes(extensionLength)
+  }
+
+  def makeDecoder(dataType: DataType): ValueDecoder = dataType match {
+    case BooleanType =>
+      (input, _, vector, rowId) => vector.putBoolean(rowId, input.readByte() != 0)
+
+    case ByteType =>
+      (input, _, vector, rowId) => vector.putByte(rowId, input.readShort().toByte)
+
+    case ShortType =>
+      (input, _, vector, rowId) => vector.putShort(rowId, input.readShort())
+
+    case IntegerType =>
+      (input, _, vector, rowId) => vector.putInt(rowId, input.readInt())
+
+    case LongType =>
+      (input, _, vector, rowId) => vector.putLong(rowId, input.readLong())
+
+    case FloatType =>
+      (input, _, vector, rowId) => vector.putFloat(rowId, input.readFloat())
+
+    case DoubleType =>
+      (input, _, vector, rowId) => vector.putDouble(rowId, input.readDouble())
+
+    case decimalType: DecimalType =>
+      val precision = decimalType.precision
+      val scale = decimalType.scale
+      (input, _, vector, rowId) =>
+        val value = readNumeric(input)
+        if (value == null) vector.putNull(rowId)
+        else vector.putDecimal(rowId, Decimal(value, precision, scale), precision)
+
+    case StringType | BinaryType =>
+      var buffer = new Array[Byte](1024)
+      (input, length, vector, rowId) =>
+        if (buffer.length < length) {
+          buffer = new Array[Byte](Math.max(length, buffer.length * 2))
+        }
+        input.readFully(buffer, 0, length)
+        vector.putByteArray(rowId, buffer, 0, length)
+
+    case DateType =>
+      (input, _, vector, rowId) =>
+        val days = input.readInt() match {
+          case Int.MaxValue => MAX_DATE_DAYS
+          case Int.MinValue => MIN_DATE_DAYS
+          case value => value + PG_EPOCH_DAYS
+        }
+        vector.putInt(rowId, days)
+
+    case TimestampType | TimestampNTZType =>
+      (input, _, vector, rowId) =>
+        val micros = input.readLong() match {
+          case Long.MaxValue => MAX_TIMESTAMP_MICROS
+          case Long.MinValue => MIN_TIMESTAMP_MICROS
+          case value => value + PG_EPOCH_MICROS
+        }
+        vector.putLong(rowId, micros)
+
+    case _ =>
+      throw new IllegalArgumentException(s"Unsupported type ${dataType.catalogString}")
+  }
+
+  /** numeric 二进制格式: ndigits, weight, sign, dscale, 每个 digit 为 0-9999 的 int16，NaN 和 Infinity 返回 null
+    */
+  def readNumeric(input: DataInputStream): java.math.BigDecimal = {
+    val ndigits = input.readShort()
+    val weight = input.readShort()
+    val sign = input.readShort() & 0xffff
+    val dscale = input.readShort()
+
+    if ((sign & NUMERIC_SPECIAL) == NUMERIC_SPECIAL) {
+      var i = 0
+      while (i < ndigits) {
+        input.readShort()
+        i += 1
+      }
+      return null
+    }
+
+    var unscaled: BigInteger = null
+    var value = 0L
+    var i = 0
+    while (i < ndigits) {
+      val digit = input.readShort()
+      if (unscaled == null && value < 100000000000000L) {
+        value = value * 10000 + digit
+      } else {
+        if (unscaled == null) {
+          unscaled = BigInteger.valueOf(value)
+        }
+        unscaled = unscaled.multiply(NBASE).add(BigInteger.valueOf(digit))
+      }
+      i += 1
+    }
+    if (unscaled == null) {
+      unscaled = BigInteger.valueOf(value)
+    }
+
+    var result = new java.math.BigDecimal(unscaled).scaleByPowerOfTen(4 * (weight - ndigits + 1))
+    if (sign == NUMERIC_NEG) {
+      result = result.negate()
+    }
+    result.setScale(dscale, RoundingMode.HALF_UP)
+  }
+}
@@ -0,0 +1,22 @@
+package org.apache.spark.sql.datatunnel.jdbc
+
+import org.apache.spark.TaskContext
+
+/** TaskContext 是线程变量，分区内启动的线程读取不到。spark JdbcUtils.savePartition 等方法通过 TaskContext 更新 taskMetrics，
+  * 在其它线程中执行前需要设置为任务线程的 TaskContext
+  */
+object TaskContextUtils {
+
+  def withTaskContext[T](context: TaskContext)(f: => T): T = {
+    if (context == null) {
+      f
+    } else {
+      TaskContext.setTaskContext(context)
+      try {
+        f
+      } finally {
+        TaskContext.unset()
+      }
+    }
+  }
+}
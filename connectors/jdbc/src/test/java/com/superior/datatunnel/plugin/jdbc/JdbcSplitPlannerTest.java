@@ -0,0 +1,108 @@
+package com.superior.datatunnel.plugin.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.superior.datatunnel.api.DataSourceType;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class JdbcSplitPlannerTest {
+
+    @Test
+    public void testComputeBoundaries() {
+        List<Object> values = Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        assertEquals(Arrays.asList(4, 7), JdbcSplitPlanner.computeBoundaries(values, 3));
+        assertEquals(Arrays.asList(6), JdbcSplitPlanner.computeBoundaries(values, 2));
+        assertEquals(Collections.emptyList(), JdbcSplitPlanner.computeBoundaries(values, 1));
+        assertEquals(Collections.emptyList(), JdbcSplitPlanner.computeBoundaries(Collections.emptyList(), 4));
+    }
+
+    @Test
+    public void testComputeBoundariesRemovesDuplicates() {
+        // 数据倾斜，大部分值相同
+        List<Object> values = Arrays.asList(1, 1, 1, 1, 1, 1, 1, 1, 2, 3);
+        assertEquals(Arrays.asList(1, 2), JdbcSplitPlanner.computeBoundaries(values, 5));
+    }
+
+    @Test
+    public void testComputeHistogramBoundaries() {
+        List<Object> values = Arrays.asList(10L, 20L, 30L, 40L);
+        List<Double> frequencies = Arrays.asList(0.25, 0.5, 0.75, 1.0);
+        assertEquals(Arrays.asList(20L), JdbcSplitPlanner.computeHistogramBoundaries(values, frequencies, 2));
+        assertEquals(
+                Arrays.asList(10L, 20L, 30L), JdbcSplitPlanner.computeHistogramBoundaries(values, frequencies, 4));
+
+        // 存在 null 值时最后一个桶的累计频率小于 1
+        frequencies = Arrays.asList(0.1, 0.2, 0.3, 0.4);
+        assertEquals(Arrays.asList(20L), JdbcSplitPlanner.computeHistogramBoundaries(values, frequencies, 2));
+
+        // 倾斜数据
+        frequencies = Arrays.asList(0.9, 0.95, 0.99, 1.0);
+        assertEquals(Arrays.asList(10L), JdbcSplitPlanner.computeHistogramBoundaries(values, frequencies, 4));
+    }
+
+    @Test
+    public void testBuildRangePredicates() {
+        JdbcSplitPlanner planner = new JdbcSplitPlanner(DataSourceType.MYSQL, null);
+        String[] predicates = planner.buildRangePredicates("id", Arrays.asList(100, 200));
+        assertArrayEquals(
+                new String[] {"id < 100 or id is null", "id >= 100 and id < 200", "id >= 200"}, predicates);
+
+        assertArrayEquals(new String[] {"1 = 1"}, planner.buildRangePredicates("id", Collections.emptyList()));
+
+        predicates = planner.buildRangePredicates("name", Arrays.asList("o'neil"));
+        assertArrayEquals(new String[] {"name < 'o''neil' or name is null", "name >= 'o''neil'"}, predicates);
+    }
+
+    @Test
+    public void testToSqlLiteral() {
+        JdbcSplitPlanner mysql = new JdbcSplitPlanner(DataSourceType.MYSQL, null);
+        JdbcSplitPlanner oracle = new JdbcSplitPlanner(DataSourceType.ORACLE, null);
+        Timestamp timestamp = Timestamp.valueOf("2024-01-02 03:04:05.123");
+
+        assertEquals("12.50", mysql.toSqlLiteral(new BigDecimal("12.50")));
+        assertEquals("'2024-01-02 03:04:05.123'", mysql.toSqlLiteral(timestamp));
+        assertEquals("DATE '2024-01-02'", oracle.toSqlLiteral(java.sql.Date.valueOf("2024-01-02")));
+        assertEquals(
+                "TO_TIMESTAMP('2024-01-02 03:04:05.123', 'YYYY-MM-DD HH24:MI:SS.FF')", oracle.toSqlLiteral(timestamp));
+        assertEquals(
+                "TO_TIMESTAMP('2024-01-02 03:04:05.123', 'YYYY-MM-DD HH24:MI:SS.FF')",
+                oracle.toSqlLiteral(new oracle.sql.TIMESTAMP(timestamp)));
+    }
+
+    @Test
+    public void testOrderedReservoir() {
+        JdbcSplitPlanner.OrderedReservoir<Integer> reservoir =
+                new JdbcSplitPlanner.OrderedReservoir<>(100, new Random(0));
+        for (int i = 0; i < 10000; i++) {
+            reservoir.add(i);
+        }
+        List<Integer> sample = reservoir.toList();
+        assertEquals(100, sample.size());
+        assertEquals(10000, reservoir.count());
+        // 保持输入顺序，并且覆盖整个范围，不是只保留最前面的记录
+        for (int i = 1; i < sample.size(); i++) {
+            assertTrue(sample.get(i - 1) < sample.get(i));
+        }
+        assertTrue(sample.get(0) < 1000);
+        assertTrue(sample.get(sample.size() - 1) > 9000);
+
+        List<Object> boundaries = JdbcSplitPlanner.computeBoundaries(new ArrayList<>(sample), 4);
+        assertEquals(3, boundaries.size());
+        assertTrue((Integer) boundaries.get(0) > 1000 && (Integer) boundaries.get(2) < 9000);
+
+        reservoir = new JdbcSplitPlanner.OrderedReservoir<>(100, new Random(0));
+        for (int i = 0; i < 10; i++) {
+            reservoir.add(i);
+        }
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), reservoir.toList());
+    }
+}
@@ -0,0 +1,60 @@
+package com.superior.datatunnel.plugin.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.superior.datatunnel.api.DataSourceType;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Map;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WatermarkStateStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WatermarkStateStore createStore() {
+        String path = new File(folder.getRoot(), "watermark.properties").getAbsolutePath();
+        return new WatermarkStateStore(path, new Configuration());
+    }
+
+    @Test
+    public void testOracleTimestampRoundTrip() throws IOException {
+        Timestamp timestamp = Timestamp.valueOf("2024-01-02 03:04:05.123456");
+        // oracle getObject 返回 oracle.sql.TIMESTAMP
+        Object maxValue = JdbcSplitPlanner.normalizeValue(new oracle.sql.TIMESTAMP(timestamp));
+        assertTrue(maxValue instanceof Timestamp);
+
+        WatermarkStateStore store = createStore();
+        store.commit(Collections.singletonMap("SCOTT.EMP", JdbcSplitPlanner.formatValue(maxValue)));
+        Map<String, String> watermarks = createStore().load();
+        assertEquals("2024-01-02 03:04:05.123456", watermarks.get("SCOTT.EMP"));
+
+        Object lowerValue = JdbcSplitPlanner.subtractOverlap(maxValue, watermarks.get("SCOTT.EMP"), 60);
+        assertEquals(Timestamp.valueOf("2024-01-02 03:03:05.123456"), lowerValue);
+
+        JdbcSplitPlanner planner = new JdbcSplitPlanner(DataSourceType.ORACLE, null);
+        assertEquals(
+                "TO_TIMESTAMP('2024-01-02 03:03:05.123456', 'YYYY-MM-DD HH24:MI:SS.FF')",
+                planner.toSqlLiteral(lowerValue));
+    }
+
+    @Test
+    public void testNumberRoundTrip() throws IOException {
+        WatermarkStateStore store = createStore();
+        store.commit(Collections.singletonMap("db.t1", JdbcSplitPlanner.formatValue(new BigDecimal("1E+3"))));
+        store.commit(Collections.singletonMap("db.t2", JdbcSplitPlanner.formatValue(20L)));
+
+        Map<String, String> watermarks = createStore().load();
+        assertEquals("1000", watermarks.get("db.t1"));
+        assertEquals("20", watermarks.get("db.t2"));
+        assertEquals(new BigDecimal("990"), JdbcSplitPlanner.subtractOverlap(1000L, watermarks.get("db.t1"), 10));
+    }
+}
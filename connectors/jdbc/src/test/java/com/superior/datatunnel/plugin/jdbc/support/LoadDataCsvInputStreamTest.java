@@ -0,0 +1,137 @@
+package com.superior.datatunnel.plugin.jdbc.support;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.spark.sql.catalyst.InternalRow;
+import org.apache.spark.sql.catalyst.expressions.GenericInternalRow;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.Decimal;
+import org.apache.spark.sql.types.StructType;
+import org.apache.spark.unsafe.types.UTF8String;
+import org.junit.Test;
+import scala.collection.JavaConverters;
+
+public class LoadDataCsvInputStreamTest {
+
+    static InternalRow row(Object... values) {
+        return new GenericInternalRow(values);
+    }
+
+    static scala.collection.Iterator<InternalRow> iterator(List<InternalRow> rows) {
+        return JavaConverters.asScalaIteratorConverter(rows.iterator()).asScala();
+    }
+
+    static String readFully(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        int size;
+        while ((size = input.read(buffer)) != -1) {
+            output.write(buffer, 0, size);
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    static long micros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1000000L + dateTime.getNano() / 1000;
+    }
+
+    private static String encode(StructType schema, InternalRow... rows) throws IOException {
+        return readFully(new LoadDataCsvInputStream(iterator(Arrays.asList(rows)), schema));
+    }
+
+    @Test
+    public void testEscapeStrings() throws IOException {
+        StructType schema = new StructType().add("id", DataTypes.LongType).add("name", DataTypes.StringType);
+        String csv = encode(
+                schema,
+                row(1L, UTF8String.fromString("a\"b\\c,d")),
+                row(2L, UTF8String.fromString("line\nbreak")),
+                row(3L, UTF8String.fromString("中文")));
+        assertEquals("1,\"a\\\"b\\\\c,d\"\n2,\"line\nbreak\"\n3,\"中文\"\n", csv);
+    }
+
+    @Test
+    public void testNullAndEmptyString() throws IOException {
+        StructType schema = new StructType().add("id", DataTypes.IntegerType).add("name", DataTypes.StringType);
+        // null 为 \N，空字符串使用双引号包围，和 null 区分
+        String csv = encode(schema, row(null, null), row(1, UTF8String.fromString("")));
+        assertEquals("\\N,\\N\n1,\"\"\n", csv);
+    }
+
+    @Test
+    public void testEncodeTypes() throws IOException {
+        StructType schema = new StructType()
+                .add("flag", DataTypes.BooleanType)
+                .add("small", DataTypes.ShortType)
+                .add("big", DataTypes.LongType)
+                .add("amount", DataTypes.createDecimalType(18, 2))
+                .add("rate", DataTypes.DoubleType)
+                .add("birthday", DataTypes.DateType)
+                .add("created_at", DataTypes.TimestampNTZType)
+                .add("data", DataTypes.BinaryType);
+        String csv = encode(
+                schema,
+                row(
+                        true,
+                        (short) -12,
+                        Long.MIN_VALUE,
+                        Decimal.apply(-5L, 18, 2),
+                        1.5d,
+                        (int) LocalDate.of(2019, 4, 14).toEpochDay(),
+                        micros(LocalDateTime.of(2019, 4, 14, 8, 5, 9, 1000)),
+                        new byte[] {'x', '"', '\\'}),
+                row(
+                        false,
+                        (short) 0,
+                        0L,
+                        Decimal.apply(123456L, 18, 2),
+                        -0.25d,
+                        (int) LocalDate.of(1969, 12, 31).toEpochDay(),
+                        micros(LocalDateTime.of(1969, 12, 31, 23, 59, 59)),
+                        new byte[0]));
+        assertEquals(
+                "1,-12,-9223372036854775808,-0.05,1.5,2019-04-14,2019-04-14 08:05:09.000001,\"x\\\"\\\\\"\n"
+                        + "0,0,0,1234.56,-0.25,1969-12-31,1969-12-31 23:59:59,\"\"\n",
+                csv);
+    }
+
+    @Test
+    public void testLargeDecimal() throws IOException {
+        StructType schema = new StructType().add("amount", DataTypes.createDecimalType(38, 10));
+        Decimal value = Decimal.apply(new java.math.BigDecimal("-12345678901234567890.0123456789"), 38, 10);
+        assertEquals("-12345678901234567890.0123456789\n", encode(schema, row(value)));
+    }
+
+    @Test
+    public void testReadAcrossBuffers() throws IOException {
+        StructType schema = new StructType().add("id", DataTypes.IntegerType).add("name", DataTypes.StringType);
+        List<InternalRow> rows = new ArrayList<>();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            rows.add(row(i, UTF8String.fromString("name_" + i)));
+            expected.append(i).append(",\"name_").append(i).append("\"\n");
+        }
+
+        // 超过一次缓冲区大小，分别使用 read() 和 read(byte[]) 读取
+        LoadDataCsvInputStream input = new LoadDataCsvInputStream(iterator(rows), schema);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int b;
+        while ((b = input.read()) != -1) {
+            output.write(b);
+        }
+        assertEquals(expected.toString(), new String(output.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(expected.length(), input.encodedBytes());
+
+        assertEquals(expected.toString(), readFully(new LoadDataCsvInputStream(iterator(rows), schema)));
+    }
+}
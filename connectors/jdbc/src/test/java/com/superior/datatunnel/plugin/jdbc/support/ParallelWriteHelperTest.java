@@ -0,0 +1,58 @@
+package com.superior.datatunnel.plugin.jdbc.support;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.spark.TaskContext;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.util.LongAccumulator;
+import org.junit.Test;
+import scala.collection.JavaConverters;
+import scala.runtime.BoxedUnit;
+
+public class ParallelWriteHelperTest {
+
+    @Test
+    public void testWriterThreadsSeeTaskContext() {
+        SparkSession spark = SparkSession.builder()
+                .master("local[2]")
+                .appName("ParallelWriteHelperTest")
+                .config("spark.ui.enabled", "false")
+                .getOrCreate();
+        try {
+            List<Row> rows = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                rows.add(RowFactory.create(i));
+            }
+
+            LongAccumulator written = spark.sparkContext().longAccumulator("written");
+            LongAccumulator missingContext = spark.sparkContext().longAccumulator("missingContext");
+            JavaSparkContext.fromSparkContext(spark.sparkContext())
+                    .parallelize(rows, 4)
+                    .foreachPartition(iterator -> ParallelWriteHelper.writePartition(
+                            JavaConverters.asScalaIteratorConverter(iterator).asScala(), 2, 10, batch -> {
+                                // JdbcUtils.savePartition 通过 TaskContext 更新 outputMetrics
+                                TaskContext context = TaskContext.get();
+                                if (context == null) {
+                                    missingContext.add(1);
+                                } else {
+                                    context.taskMetrics().outputMetrics();
+                                }
+                                while (batch.hasNext()) {
+                                    batch.next();
+                                    written.add(1);
+                                }
+                                return BoxedUnit.UNIT;
+                            }));
+
+            assertEquals(0L, missingContext.value().longValue());
+            assertEquals(1000L, written.value().longValue());
+        } finally {
+            spark.stop();
+        }
+    }
+}
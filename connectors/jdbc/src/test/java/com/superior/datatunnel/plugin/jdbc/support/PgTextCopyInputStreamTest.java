@@ -0,0 +1,92 @@
+package com.superior.datatunnel.plugin.jdbc.support;
+
+import static com.superior.datatunnel.plugin.jdbc.support.LoadDataCsvInputStreamTest.iterator;
+import static com.superior.datatunnel.plugin.jdbc.support.LoadDataCsvInputStreamTest.micros;
+import static com.superior.datatunnel.plugin.jdbc.support.LoadDataCsvInputStreamTest.readFully;
+import static com.superior.datatunnel.plugin.jdbc.support.LoadDataCsvInputStreamTest.row;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import org.apache.spark.sql.catalyst.InternalRow;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.Decimal;
+import org.apache.spark.sql.types.StructType;
+import org.apache.spark.unsafe.types.UTF8String;
+import org.junit.Test;
+
+public class PgTextCopyInputStreamTest {
+
+    private static String encode(StructType schema, byte delimiter, InternalRow... rows) throws IOException {
+        return readFully(new PgTextCopyInputStream(iterator(Arrays.asList(rows)), schema, delimiter));
+    }
+
+    private static String encodeDate(LocalDate date) throws IOException {
+        StructType schema = new StructType().add("d", DataTypes.DateType);
+        return encode(schema, (byte) '\t', row((int) date.toEpochDay()));
+    }
+
+    @Test
+    public void testEscapeStrings() throws IOException {
+        StructType schema = new StructType().add("id", DataTypes.IntegerType).add("name", DataTypes.StringType);
+        String text = encode(
+                schema,
+                (byte) '\t',
+                row(1, UTF8String.fromString("a\\b\tc\rd\ne")),
+                row(2, UTF8String.fromString("\\N")),
+                row(3, UTF8String.fromString("中文\u0000")));
+        // NUL 字符不能出现在 text 格式中，直接丢弃
+        assertEquals("1\ta\\\\b\\tc\\rd\\ne\n2\t\\\\N\n3\t中文\n", text);
+    }
+
+    @Test
+    public void testEscapeDelimiter() throws IOException {
+        StructType schema = new StructType().add("id", DataTypes.IntegerType).add("name", DataTypes.StringType);
+        String text = encode(schema, (byte) '|', row(1, UTF8String.fromString("a|b,c")), row(null, null));
+        assertEquals("1|a\\|b,c\n\\N|\\N\n", text);
+    }
+
+    @Test
+    public void testBooleanAndBinary() throws IOException {
+        StructType schema = new StructType()
+                .add("flag", DataTypes.BooleanType)
+                .add("data", DataTypes.BinaryType)
+                .add("amount", DataTypes.createDecimalType(10, 3));
+        String text = encode(
+                schema,
+                (byte) '\t',
+                row(true, new byte[] {0, 15, (byte) 0xff}, Decimal.apply(-1234L, 10, 3)),
+                row(false, new byte[0], Decimal.apply(7L, 10, 3)));
+        assertEquals("t\t\\\\x000fff\t-1.234\nf\t\\\\x\t0.007\n", text);
+    }
+
+    @Test
+    public void testDates() throws IOException {
+        assertEquals("2019-04-14\n", encodeDate(LocalDate.of(2019, 4, 14)));
+        assertEquals("0001-01-01\n", encodeDate(LocalDate.of(1, 1, 1)));
+        assertEquals("10000-01-01\n", encodeDate(LocalDate.of(10000, 1, 1)));
+    }
+
+    @Test
+    public void testNegativeYears() throws IOException {
+        // 公元前 1 年为第 0 年
+        assertEquals("0001-12-31 BC\n", encodeDate(LocalDate.of(0, 12, 31)));
+        assertEquals("0002-03-15 BC\n", encodeDate(LocalDate.of(-1, 3, 15)));
+        assertEquals("4714-11-24 BC\n", encodeDate(LocalDate.of(-4713, 11, 24)));
+
+        StructType schema = new StructType().add("ts", DataTypes.TimestampNTZType);
+        String text = encode(schema, (byte) '\t', row(micros(LocalDateTime.of(-99, 2, 28, 23, 59, 59, 500000000))));
+        assertEquals("0100-02-28 23:59:59.500000 BC\n", text);
+    }
+
+    @Test
+    public void testNegativeYearsInLoadData() throws IOException {
+        // LOAD DATA 不使用 BC 后缀，按照 ISO 8601 写成负数年份
+        StructType schema = new StructType().add("d", DataTypes.DateType);
+        String csv = readFully(new LoadDataCsvInputStream(
+                iterator(Arrays.asList(row((int) LocalDate.of(-1, 3, 15).toEpochDay()))), schema));
+        assertEquals("-0001-03-15\n", csv);
+    }
+}
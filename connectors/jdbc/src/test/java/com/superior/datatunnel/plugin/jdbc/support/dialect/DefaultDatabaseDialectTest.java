@@ -0,0 +1,104 @@
+package com.superior.datatunnel.plugin.jdbc.support.dialect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.superior.datatunnel.api.DataSourceType;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.spark.sql.execution.datasources.jdbc.JDBCOptions;
+import org.apache.spark.sql.jdbc.JdbcDialects;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructType;
+import org.junit.Test;
+import scala.collection.JavaConverters;
+
+public class DefaultDatabaseDialectTest {
+
+    private static DefaultDatabaseDialect createDialect(String url, DataSourceType dataSourceType) {
+        return new DefaultDatabaseDialect(options(url), JdbcDialects.get(url), dataSourceType);
+    }
+
+    private static JDBCOptions options(String url) {
+        Map<String, String> params = new HashMap<>();
+        params.put("columns", "*");
+        return new JDBCOptions(
+                url,
+                "\"SCOTT\".\"EMP\"",
+                JavaConverters.mapAsScalaMapConverter(params)
+                        .asScala()
+                        .toMap(scala.Predef$.MODULE$.<scala.Tuple2<String, String>>conforms()));
+    }
+
+    private static StructType schema(int numFields) {
+        StructType schema = new StructType();
+        for (int i = 0; i < numFields; i++) {
+            schema = schema.add("c" + i, DataTypes.IntegerType);
+        }
+        return schema;
+    }
+
+    @Test
+    public void testOracleRowsLimitedByInsertAllColumns() {
+        DefaultDatabaseDialect dialect = createDialect("jdbc:oracle:thin:@localhost:1521/orcl", DataSourceType.ORACLE);
+        assertEquals(99, dialect.rowsPerInsertStatement(schema(10), 1000));
+        assertEquals(1, dialect.rowsPerInsertStatement(schema(600), 1000));
+        assertEquals(1, dialect.rowsPerInsertStatement(schema(1200), 1000));
+        assertEquals(50, dialect.rowsPerInsertStatement(schema(10), 50));
+    }
+
+    @Test
+    public void testSqlServerRowsLimitedByParameters() {
+        DefaultDatabaseDialect dialect =
+                createDialect("jdbc:sqlserver://localhost:1433;databaseName=test", DataSourceType.SQLSERVER);
+        assertEquals(200, dialect.rowsPerInsertStatement(schema(10), 1000));
+        assertEquals(1000, dialect.rowsPerInsertStatement(schema(1), 5000));
+        assertEquals(1, dialect.rowsPerInsertStatement(schema(3000), 1000));
+    }
+
+    @Test
+    public void testDamengRowsLimitedByBatchSize() {
+        DefaultDatabaseDialect dialect = createDialect("jdbc:dm://localhost:5236", DataSourceType.DAMENG);
+        assertEquals(1000, dialect.rowsPerInsertStatement(schema(10), 1000));
+        assertEquals(3276, dialect.rowsPerInsertStatement(schema(10), 5000));
+    }
+
+    @Test
+    public void testSqlServerStagingTableWithoutIdentity() {
+        String url = "jdbc:sqlserver://localhost:1433;databaseName=test";
+        MergeDatabaseDialect dialect =
+                new MergeDatabaseDialect(options(url), JdbcDialects.get(url), DataSourceType.SQLSERVER);
+        String sql = dialect.getCreateStagingTableStatement(
+                "[dbo].[t]", "[dbo].[dt_stg_t]", new String[] {"[id]", "[name]"});
+        // UNION ALL 避免 staging 表继承 IDENTITY 属性
+        assertEquals(
+                "SELECT [id],[name] INTO [dbo].[dt_stg_t] FROM [dbo].[t] WHERE 1 = 0\n"
+                        + "UNION ALL SELECT [id],[name] FROM [dbo].[t] WHERE 1 = 0",
+                sql);
+    }
+
+    @Test
+    public void testMySqlUsesBatch() {
+        DefaultDatabaseDialect dialect = createDialect("jdbc:mysql://localhost:3306/test", DataSourceType.MYSQL);
+        assertEquals(1, dialect.rowsPerInsertStatement(schema(10), 1000));
+    }
+
+    @Test
+    public void testOracleInsertAllStatement() {
+        DefaultDatabaseDialect dialect = createDialect("jdbc:oracle:thin:@localhost:1521/orcl", DataSourceType.ORACLE);
+        String sql = dialect.getMultiRowInsertStatement("\"SCOTT\".\"EMP\"", new String[] {"\"A\"", "\"B\""}, 3);
+        assertTrue(sql.startsWith("INSERT ALL"));
+        assertTrue(sql.endsWith("SELECT 1 FROM DUAL"));
+        assertEquals(3, StringUtils.countMatches(sql, "INTO \"SCOTT\".\"EMP\" (\"A\",\"B\") VALUES (?,?)"));
+        assertEquals(6, StringUtils.countMatches(sql, "?"));
+    }
+
+    @Test
+    public void testMultiRowValuesStatement() {
+        DefaultDatabaseDialect dialect =
+                createDialect("jdbc:sqlserver://localhost:1433;databaseName=test", DataSourceType.SQLSERVER);
+        String sql = dialect.getMultiRowInsertStatement("[dbo].[t]", new String[] {"[a]", "[b]"}, 2);
+        assertEquals("INSERT INTO [dbo].[t] ([a],[b]) VALUES (?,?),(?,?)", sql);
+    }
+}
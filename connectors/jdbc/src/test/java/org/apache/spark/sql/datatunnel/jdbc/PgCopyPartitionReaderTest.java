@@ -0,0 +1,131 @@
+package org.apache.spark.sql.datatunnel.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import org.apache.spark.sql.execution.vectorized.OnHeapColumnVector;
+import org.apache.spark.sql.types.DataTypes;
+import org.junit.Test;
+import scala.Function4;
+import scala.runtime.BoxedUnit;
+
+public class PgCopyPartitionReaderTest {
+
+    private static final int SENTINEL = 0x7eadbeef;
+
+    // numeric 二进制格式，末尾追加 SENTINEL 用于检查是否读取了全部字节
+    private static DataInputStream numeric(int weight, int sign, int dscale, int... digits) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeShort(digits.length);
+        output.writeShort(weight);
+        output.writeShort(sign);
+        output.writeShort(dscale);
+        for (int digit : digits) {
+            output.writeShort(digit);
+        }
+        output.writeInt(SENTINEL);
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    private static BigDecimal readNumeric(int weight, int sign, int dscale, int... digits) throws IOException {
+        DataInputStream input = numeric(weight, sign, dscale, digits);
+        BigDecimal value = PgCopyPartitionReader.readNumeric(input);
+        assertEquals(SENTINEL, input.readInt());
+        return value;
+    }
+
+    private static DataInputStream bytesOf(long value, boolean int8) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        if (int8) {
+            output.writeLong(value);
+        } else {
+            output.writeInt((int) value);
+        }
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testReadNumeric() throws IOException {
+        assertEquals(new BigDecimal("12345.678"), readNumeric(1, 0, 3, 1, 2345, 6780));
+        assertEquals(new BigDecimal("-0.0012"), readNumeric(-1, 0x4000, 4, 12));
+        assertEquals(new BigDecimal("1000000"), readNumeric(1, 0, 0, 100));
+        assertEquals(new BigDecimal("0.00"), readNumeric(0, 0, 2));
+        assertEquals(new BigDecimal("-7"), readNumeric(0, 0x4000, 0, 7));
+    }
+
+    @Test
+    public void testReadLargeNumeric() throws IOException {
+        // 超过 long 范围使用 BigInteger 累加
+        assertEquals(
+                new BigDecimal("123456789012345678901234.5678"),
+                readNumeric(5, 0, 4, 1234, 5678, 9012, 3456, 7890, 1234, 5678));
+        assertEquals(new BigDecimal("-100000000000000000000000000000"), readNumeric(7, 0x4000, 0, 10));
+    }
+
+    @Test
+    public void testReadSpecialNumeric() throws IOException {
+        // NaN、Infinity、-Infinity
+        assertNull(readNumeric(0, 0xc000, 0));
+        assertNull(readNumeric(0, 0xd000, 0));
+        assertNull(readNumeric(0, 0xf000, 0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDecodeDateAndTimestamp() throws IOException {
+        // postgresql 日期时间以 2000-01-01 为起点
+        OnHeapColumnVector dates = new OnHeapColumnVector(1, DataTypes.DateType);
+        Function4<DataInputStream, Object, OnHeapColumnVector, Object, BoxedUnit> dateDecoder =
+                (Function4) PgCopyPartitionReader.makeDecoder(DataTypes.DateType);
+        dateDecoder.apply(bytesOf(-1, false), 4, dates, 0);
+        assertEquals(LocalDate.of(1999, 12, 31).toEpochDay(), dates.getInt(0));
+
+        OnHeapColumnVector timestamps = new OnHeapColumnVector(1, DataTypes.TimestampNTZType);
+        Function4<DataInputStream, Object, OnHeapColumnVector, Object, BoxedUnit> timestampDecoder =
+                (Function4) PgCopyPartitionReader.makeDecoder(DataTypes.TimestampNTZType);
+        timestampDecoder.apply(bytesOf(1500000L, true), 8, timestamps, 0);
+        LocalDateTime expected = LocalDateTime.of(2000, 1, 1, 0, 0, 1, 500000000);
+        assertEquals(expected.toEpochSecond(ZoneOffset.UTC) * 1000000L + 500000L, timestamps.getLong(0));
+
+        dates.close();
+        timestamps.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDecodeInfinity() throws IOException {
+        // infinity、-infinity 不能加上 2000-01-01 偏移量，否则溢出
+        OnHeapColumnVector dates = new OnHeapColumnVector(2, DataTypes.DateType);
+        Function4<DataInputStream, Object, OnHeapColumnVector, Object, BoxedUnit> dateDecoder =
+                (Function4) PgCopyPartitionReader.makeDecoder(DataTypes.DateType);
+        dateDecoder.apply(bytesOf(Integer.MAX_VALUE, false), 4, dates, 0);
+        dateDecoder.apply(bytesOf(Integer.MIN_VALUE, false), 4, dates, 1);
+        assertEquals(LocalDate.of(9999, 12, 31).toEpochDay(), dates.getInt(0));
+        assertEquals(LocalDate.of(1, 1, 1).toEpochDay(), dates.getInt(1));
+
+        OnHeapColumnVector timestamps = new OnHeapColumnVector(2, DataTypes.TimestampType);
+        Function4<DataInputStream, Object, OnHeapColumnVector, Object, BoxedUnit> timestampDecoder =
+                (Function4) PgCopyPartitionReader.makeDecoder(DataTypes.TimestampType);
+        timestampDecoder.apply(bytesOf(Long.MAX_VALUE, true), 8, timestamps, 0);
+        timestampDecoder.apply(bytesOf(Long.MIN_VALUE, true), 8, timestamps, 1);
+        assertEquals(
+                LocalDateTime.of(9999, 12, 31, 23, 59, 59).toEpochSecond(ZoneOffset.UTC) * 1000000L,
+                timestamps.getLong(0));
+        assertEquals(
+                LocalDateTime.of(1, 1, 1, 0, 0, 0).toEpochSecond(ZoneOffset.UTC) * 1000000L, timestamps.getLong(1));
+
+        dates.close();
+        timestamps.close();
+    }
+}
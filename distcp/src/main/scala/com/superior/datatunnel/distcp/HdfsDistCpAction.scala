@@ -2,17 +2,22 @@ package com.superior.datatunnel.distcp
 
 import com.superior.datatunnel.api.model.DistCpOption
 import com.superior.datatunnel.api.{DistCpAction, DistCpContext}
-import com.superior.datatunnel.distcp.HdfsDistCpAction.{doCopy, doDelete}
+import com.superior.datatunnel.distcp.HdfsDistCpAction.{deletedSinceManifest, doCopy, doDelete, unpersistLineage}
 import com.superior.datatunnel.distcp.objects._
 import com.superior.datatunnel.distcp.utils.PathUtils
-import org.apache.hadoop.fs.{FileSystem, Path}
+import org.apache.hadoop.fs.{CommonPathCapabilities, FileSystem, Path}
 import com.superior.datatunnel.distcp.utils._
 import io.github.melin.jobserver.spark.api.LogUtils
-import org.apache.spark.{HashPartitioner, TaskContext}
+import org.apache.commons.lang3.StringUtils
+import org.apache.hadoop.conf.Configuration
+import org.apache.spark.{HashPartitioner, SparkContext, TaskContext}
 import org.apache.spark.internal.Logging
 import org.apache.spark.rdd.RDD
+import org.apache.spark.storage.StorageLevel
 
 import java.net.URI
+import scala.collection.mutable
+import scala.util.Try
 import scala.util.matching.Regex
 
 class HdfsDistCpAction extends DistCpAction with Logging {
@@ -21,6 +26,8 @@ class HdfsDistCpAction extends DistCpAction with Logging {
     val sparkSession = context.getSparkSession
     val option: DistCpOption = context.getOption
 
+    CopyUtils.validateUpdateCompareMode(sparkSession.sparkContext.hadoopConfiguration, option)
+
     val qualifiedSourcePaths = option.getSrcPaths.map(path =>
       PathUtils
         .pathToQualifiedPath(
@@ -44,6 +51,36 @@ class HdfsDistCpAction extends DistCpAction with Logging {
       else
         option.getExcludes.toList.map(new Regex(_))
 
+    val manifestPath =
+      if (StringUtils.isBlank(option.getManifestPath)) None
+      else
+        Some(
+          PathUtils.pathToQualifiedPath(
+            sparkSession.sparkContext.hadoopConfiguration,
+            new Path(option.getManifestPath)
+          )
+        )
+    val manifest = manifestPath.map { path =>
+      // Files filtered out by changed include/exclude options would otherwise look deleted since the manifest
+      val signature = Seq(
+        qualifiedSourcePaths.mkString(","),
+        qualifiedDestinationPath.toString,
+        includesRegex.mkString(","),
+        excludesRegex.mkString(","),
+        option.isExcludeHiddenFile.toString
+      ).mkString("\t")
+      ListingManifest.read(
+        sparkSession.sparkContext.hadoopConfiguration,
+        path,
+        signature,
+        option.isManifestTrustFolderMtime
+      )
+    }
+    val incremental = manifest.exists(_.hasPrevious)
+    if (manifest.isDefined && option.getDistributedListingDepth > 0) {
+      LogUtils.warn("manifestPath is set, source files are listed on the driver, distributedListingDepth is ignored")
+    }
+
     val sourceRDD = FileListUtils.getSourceFiles(
       sparkSession.sparkContext,
       qualifiedSourcePaths.map(_.toUri),
@@ -52,34 +89,69 @@ class HdfsDistCpAction extends DistCpAction with Logging {
       option.getNumListstatusThreads,
       includesRegex,
       excludesRegex,
-      option.isExcludeHiddenFile
+      option.isExcludeHiddenFile,
+      manifest,
+      option.getDistributedListingDepth
     )
 
-    val destinationRDD = FileListUtils.getDestinationFiles(
-      sparkSession.sparkContext,
-      qualifiedDestinationPath,
-      option
-    )
+    val accumulators = new Accumulators(sparkSession)
 
-    val joined = sourceRDD.fullOuterJoin(destinationRDD)
+    val (copyResult, deleteResult) = if (incremental) {
+      // Only files modified since the previous run are listed, the destination is not listed and joined
+      LogUtils.info(s"incremental copy with manifest: ${manifestPath.get}")
+      val copyResult = doCopy(sourceRDD.values, accumulators, option)
+      val deleteResult = if (option.isDelete) {
+        val toDelete = deletedSinceManifest(manifest.get, qualifiedSourcePaths, qualifiedDestinationPath, option)
+        doDelete(sparkSession.sparkContext.parallelize(toDelete), accumulators, option)
+      } else {
+        sparkSession.sparkContext.emptyRDD[DistCPResult]
+      }
+      (copyResult, deleteResult)
+    } else {
+      val destinationRDD = FileListUtils.getDestinationFiles(
+        sparkSession.sparkContext,
+        qualifiedDestinationPath,
+        option
+      )
 
-    val toCopy = joined.collect { case (_, (Some(s), _)) => s }
+      val joined = sourceRDD.fullOuterJoin(destinationRDD)
 
-    val accumulators = new Accumulators(sparkSession)
+      // Destination status from the listing is used to skip existing files without another RPC per file
+      val toCopy = joined.collect { case (_, (Some(s), d)) => s.copy(destinationStatus = d) }
 
-    val copyResult: RDD[DistCPResult] = doCopy(toCopy, accumulators, option)
+      val copyResult: RDD[DistCPResult] = doCopy(toCopy, accumulators, option)
 
-    val deleteResult: RDD[DistCPResult] = {
-      if (option.isDelete) {
-        val toDelete = joined.collect { case (d, (None, _)) => d }
-        doDelete(toDelete, accumulators, option)
-      } else {
-        sparkSession.sparkContext.emptyRDD[DistCPResult]
+      val deleteResult: RDD[DistCPResult] = {
+        if (option.isDelete) {
+          val toDelete = joined.collect { case (d, (None, _)) => d }
+          doDelete(toDelete, accumulators, option)
+        } else {
+          sparkSession.sparkContext.emptyRDD[DistCPResult]
+        }
       }
+      (copyResult, deleteResult)
     }
 
     val allResults = copyResult union deleteResult
-    allResults.foreach(_ => ())
+    // Failed files and folders are invalidated in the manifest so the next run copies them again
+    val failed =
+      try {
+        allResults
+          .flatMap {
+            case FileCopyResult(source, _, _, CopyActionResult.Failed(_)) => Some(source)
+            case DirectoryCopyResult(source, _, CopyActionResult.Failed(_)) => Some(source)
+            case _ => None
+          }
+          .collect()
+          .toSet
+      } finally {
+        unpersistLineage(allResults)
+      }
+
+    if (manifest.isDefined && !option.isDryRun) {
+      val count = manifest.get.write(sparkSession.sparkContext.hadoopConfiguration, manifestPath.get, failed)
+      LogUtils.info(s"write $count file statuses to manifest: ${manifestPath.get}")
+    }
 
     val outputText = accumulators.getOutputText
     LogUtils.info(s"Spark DistCP Run Statistics:\n${outputText}")
@@ -90,6 +162,33 @@ object HdfsDistCpAction extends Logging {
 
   type KeyedCopyDefinition = (URI, CopyDefinitionWithDependencies)
 
+  /** Destination URIs of the source files and folders recorded in the manifest that no longer exist
+    */
+  private[distcp] def deletedSinceManifest(
+      manifest: ListingManifest,
+      sourcePaths: Seq[Path],
+      destinationPath: Path,
+      options: DistCpOption
+  ): Seq[URI] = {
+    val current = manifest.listedUris
+    manifest.previousUris
+      .filter(uri => !current.contains(uri))
+      .flatMap { uri =>
+        sourcePaths
+          .map(_.toUri)
+          .find(root => root == uri || PathUtils.uriIsChild(root, uri))
+          .map { root =>
+            PathUtils.sourceURIToDestinationURI(
+              uri,
+              root,
+              destinationPath.toUri,
+              options.updateOverwritePathBehaviour
+            )
+          }
+      }
+      .toSeq
+  }
+
   /** Perform the copy portion of the DistCP
     */
   private[distcp] def doCopy(
@@ -101,11 +200,20 @@ object HdfsDistCpAction extends Logging {
     val serConfig = new ConfigSerDeser(
       sourceRDD.sparkContext.hadoopConfiguration
     )
-    batchAndPartitionFiles(
-      sourceRDD,
+
+    val chunkSize = getChunkSize(sourceRDD.sparkContext.hadoopConfiguration, options)
+    val definitions =
+      if (chunkSize > 0) sourceRDD.flatMap(splitLargeFile(options.getChunkThresholdBytes, chunkSize))
+      else sourceRDD
+
+    val batched = batchAndPartitionFiles(
+      definitions,
       options.getMaxFilesPerTask,
       options.getMaxBytesPerTask
     )
+    val throttle = getCopyThrottle(sourceRDD.sparkContext, options, batched.getNumPartitions)
+
+    val copyResult = batched
       .mapPartitions { iterator =>
         val hadoopConfiguration = serConfig.get()
         val attemptID = TaskContext.get().taskAttemptId()
@@ -120,13 +228,142 @@ object HdfsDistCpAction extends Logging {
                 FileSystem.get(d.destination, hadoopConfiguration),
                 d,
                 options,
-                attemptID
+                attemptID,
+                throttle
               )
               accumulators.handleResult(r)
               r
             }
           )
       }
+
+    if (chunkSize > 0) stitchChunks(copyResult, serConfig, accumulators, options)
+    else copyResult
+  }
+
+  /** Bandwidth of each copy task and the stream limit per destination host. The job bandwidth is shared evenly by the
+    * copy tasks that can run at the same time, bounded by the number of copy partitions and the task slots of the
+    * executors (the maximum number of executors if dynamic allocation is enabled).
+    */
+  private[distcp] def getCopyThrottle(
+      sparkContext: SparkContext,
+      options: DistCpOption,
+      numPartitions: Int
+  ): CopyThrottle = {
+    val perTask = options.getMaxBandwidthMbPerTask.toLong * 1024 * 1024
+    val total = options.getMaxBandwidthMb.toLong * 1024 * 1024
+    val bytesPerSecond = if (total > 0) {
+      val conf = sparkContext.getConf
+      val maxExecutors = conf.getInt("spark.dynamicAllocation.maxExecutors", 0)
+      val taskSlots =
+        if (conf.getBoolean("spark.dynamicAllocation.enabled", false) && maxExecutors > 0) {
+          maxExecutors.toLong * conf.getInt("spark.executor.cores", 1) / conf.getInt("spark.task.cpus", 1)
+        } else {
+          sparkContext.defaultParallelism.toLong
+        }
+      val concurrentTasks = Math.max(1L, Math.min(numPartitions.toLong, taskSlots))
+      val shared = Math.max(1L, total / concurrentTasks)
+      if (perTask > 0) Math.min(perTask, shared) else shared
+    } else {
+      perTask
+    }
+
+    if (bytesPerSecond > 0 || options.getMaxStreamsPerHost > 0) {
+      val bandwidth = if (bytesPerSecond > 0) s"$bytesPerSecond bytes/s" else "unlimited"
+      val streams = if (options.getMaxStreamsPerHost > 0) options.getMaxStreamsPerHost.toString else "unlimited"
+      LogUtils.info(s"copy bandwidth per task: $bandwidth, max streams per host: $streams")
+    }
+    CopyThrottle(bytesPerSecond, options.getMaxStreamsPerHost)
+  }
+
+  /** Chunk size used to split large files, aligned to the destination block size. Returns 0 if chunked copy is disabled
+    * or the destination FileSystem cannot concatenate files.
+    */
+  private[distcp] def getChunkSize(
+      hadoopConfiguration: Configuration,
+      options: DistCpOption
+  ): Long = {
+    if (options.getChunkThresholdBytes <= 0 || options.isDryRun) {
+      return 0
+    }
+
+    val destPath = PathUtils.pathToQualifiedPath(hadoopConfiguration, new Path(options.getDestPath))
+    val destFS = destPath.getFileSystem(hadoopConfiguration)
+    // RawLocalFileSystem.concat overwrites the target file instead of appending to it
+    val supportsConcat = destFS.getScheme != "file" &&
+      Try(destFS.hasPathCapability(destPath, CommonPathCapabilities.FS_CONCAT)).getOrElse(false)
+    if (!supportsConcat) {
+      LogUtils.warn(s"${destFS.getScheme} does not support concat, chunked copy of large files is disabled")
+      return 0
+    }
+
+    val blockSize = destFS.getDefaultBlockSize(destPath)
+    val chunkSize = Math.max(options.getChunkSizeBytes, blockSize)
+    val alignedChunkSize = (chunkSize + blockSize - 1) / blockSize * blockSize
+    LogUtils.info(
+      s"split files larger than ${options.getChunkThresholdBytes} bytes into chunks of $alignedChunkSize bytes"
+    )
+    alignedChunkSize
+  }
+
+  /** Split a file larger than `threshold` into chunks, each chunk is scheduled as an ordinary copy unit
+    */
+  private[distcp] def splitLargeFile(
+      threshold: Long,
+      chunkSize: Long
+  )(definition: CopyDefinitionWithDependencies): Seq[CopyDefinitionWithDependencies] = {
+    val len = definition.source.getLen
+    if (definition.source.isFile && len > threshold && len > chunkSize) {
+      FileChunk.split(len, chunkSize).map(chunk => definition.copy(chunk = Some(chunk)))
+    } else {
+      Seq(definition)
+    }
+  }
+
+  /** Stitch the chunks of each large file once all chunks are copied. Copy results are persisted so the copy stage is
+    * not run again by the stitch stage, they are unpersisted with [[unpersistLineage]] once the results are collected.
+    */
+  private[distcp] def stitchChunks(
+      copyResult: RDD[DistCPResult],
+      serConfig: ConfigSerDeser,
+      accumulators: Accumulators,
+      options: DistCpOption
+  ): RDD[DistCPResult] = {
+    val persisted = copyResult.persist(StorageLevel.MEMORY_AND_DISK)
+    val stitched = persisted
+      .collect { case c: ChunkCopyResult => (c.destination, c) }
+      .groupByKey()
+      .mapPartitions[DistCPResult] { iterator =>
+        val hadoopConfiguration = serConfig.get()
+        iterator.map { case (destination, chunks) =>
+          val r = CopyUtils.stitchChunks(
+            FileSystem.get(chunks.head.source, hadoopConfiguration),
+            FileSystem.get(destination, hadoopConfiguration),
+            chunks.toSeq,
+            options.isIgnoreErrors,
+            options.getUpdateCompareMode
+          )
+          logInfo(r.getMessage)
+          accumulators.handleResult(r)
+          r
+        }
+      }
+
+    persisted.filter(!_.isInstanceOf[ChunkCopyResult]) union stitched
+  }
+
+  /** Unpersist the RDDs persisted in the lineage of `rdd`, e.g. the copy results of a chunked copy. RDDs outside the
+    * lineage are left alone as the SparkContext may be shared with other jobs.
+    */
+  private[distcp] def unpersistLineage(rdd: RDD[_]): Unit = {
+    val visited = mutable.Set[Int]()
+    def visit(r: RDD[_]): Unit = {
+      if (visited.add(r.id)) {
+        if (r.getStorageLevel != StorageLevel.NONE) r.unpersist(blocking = false)
+        r.dependencies.foreach(d => visit(d.rdd))
+      }
+    }
+    visit(rdd)
   }
 
   /** Perform the delete from destination portion of the DistCP
@@ -200,7 +437,7 @@ object HdfsDistCpAction extends Logging {
     val partitioner =
       rdd.partitioner.getOrElse(new HashPartitioner(rdd.partitions.length))
     val sorted = rdd
-      .map(v => (v.source.uri.toString, v))
+      .map(v => (v.sortKey, v))
       .repartitionAndSortWithinPartitions(partitioner)
       .map(_._2)
     val batched = sorted.mapPartitionsWithIndex(
@@ -227,9 +464,9 @@ object HdfsDistCpAction extends Logging {
         null
       ) { case ((index, count, bytes, _), definition) =>
         val newCount = count + 1
-        val newBytes = bytes + definition.source.getLen
+        val newBytes = bytes + definition.copyLength
         if (newCount > maxFilesPerTask || newBytes > maxBytesPerTask) {
-          (index + 1, 1, definition.source.getLen, definition)
+          (index + 1, 1, definition.copyLength, definition)
         } else {
           (index, newCount, newBytes, definition)
         }
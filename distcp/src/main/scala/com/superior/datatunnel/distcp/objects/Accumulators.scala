@@ -9,6 +9,7 @@ import scala.collection.JavaConverters._
 class Accumulators(sparkSession: SparkSession) extends Serializable {
 
   def handleResult(result: DistCPResult): Unit = result match {
+    case _: ChunkCopyResult => // Counted once the chunks are stitched into the destination file
     case DeleteResult(
           _,
           DeleteActionResult.SkippedDoesNotExists | DeleteActionResult.SkippedDryRun
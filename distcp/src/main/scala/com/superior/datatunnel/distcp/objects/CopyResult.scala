@@ -25,6 +25,21 @@ case class DirectoryCopyResult(
     s"Source: [$source], Destination: [$destination], Type: [DirectoryCreate], Result: [${copyAction.message}]"
 }
 
+/** Result of copying a single chunk of a large file. Chunks are stitched into the destination file once all chunks of
+  * the file are copied, and only the stitched file is counted in the statistics.
+  */
+case class ChunkCopyResult(
+    source: URI,
+    destination: URI,
+    len: Long,
+    chunk: FileChunk,
+    copyAction: FileCopyActionResult
+) extends CopyResult {
+  def getMessage: String =
+    s"Source: [$source], Destination: [$destination], Type: [ChunkCopy: ${chunk.index + 1}/${chunk.count}, " +
+      s"${chunk.length} bytes], Result: [${copyAction.message}]"
+}
+
 sealed trait CopyActionResult extends Serializable {
   def message: String = this.getClass.getSimpleName.stripSuffix("$")
 }
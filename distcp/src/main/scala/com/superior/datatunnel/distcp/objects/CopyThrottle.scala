@@ -0,0 +1,48 @@
+package com.superior.datatunnel.distcp.objects
+
+import com.superior.datatunnel.distcp.utils.ThrottledInputStream
+
+import java.io.InputStream
+import java.net.URI
+import java.util.concurrent.{ConcurrentHashMap, Semaphore}
+
+/** Bandwidth and concurrency limits of the copy streams of a task
+  *
+  * @param bytesPerSecond
+  *   Bandwidth of each copy task, 0 for unlimited
+  * @param maxStreamsPerHost
+  *   Maximum number of concurrent copy streams to the same destination host (or bucket) in an executor, 0 for
+  *   unlimited
+  */
+case class CopyThrottle(bytesPerSecond: Long, maxStreamsPerHost: Int) {
+
+  def throttle(in: InputStream): InputStream =
+    if (bytesPerSecond > 0) new ThrottledInputStream(in, bytesPerSecond) else in
+
+  /** Run `body` holding a stream permit of the destination host */
+  def withStream[T](destination: URI)(body: => T): T = {
+    if (maxStreamsPerHost <= 0) {
+      body
+    } else {
+      val host = Option(destination.getAuthority).getOrElse("")
+      val semaphore = CopyThrottle.semaphores.computeIfAbsent(
+        (host, maxStreamsPerHost),
+        _ => new Semaphore(maxStreamsPerHost, true)
+      )
+      semaphore.acquire()
+      try {
+        body
+      } finally {
+        semaphore.release()
+      }
+    }
+  }
+}
+
+object CopyThrottle {
+
+  val Unlimited: CopyThrottle = CopyThrottle(0, 0)
+
+  // Shared by all tasks of an executor, keyed by destination host and limit
+  private val semaphores = new ConcurrentHashMap[(String, Int), Semaphore]()
+}
@@ -0,0 +1,30 @@
+package com.superior.datatunnel.distcp.objects
+
+/** Byte range of a large file copied by a single task
+  *
+  * @param index
+  *   Index of the chunk within the file, starting from 0
+  * @param count
+  *   Total number of chunks of the file
+  * @param offset
+  *   Offset of the first byte of the chunk in the source file
+  * @param length
+  *   Number of bytes in the chunk
+  */
+case class FileChunk(index: Int, count: Int, offset: Long, length: Long) {
+
+  def partName: String = f"part-$index%05d"
+}
+
+object FileChunk {
+
+  /** Split a file of the given length into chunks of `chunkSize` bytes, the last chunk holds the remainder
+    */
+  def split(len: Long, chunkSize: Long): Seq[FileChunk] = {
+    val count = ((len + chunkSize - 1) / chunkSize).toInt
+    (0 until count).map { index =>
+      val offset = index * chunkSize
+      FileChunk(index, count, offset, Math.min(chunkSize, len - offset))
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package com.superior.datatunnel.distcp.objects
+
+import org.apache.hadoop.conf.Configuration
+import org.apache.hadoop.fs.Path
+
+import java.io.{BufferedReader, BufferedWriter, InputStreamReader, OutputStreamWriter}
+import java.net.URI
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.zip.{GZIPInputStream, GZIPOutputStream}
+import scala.collection.JavaConverters._
+
+/** Statuses of the source files and folders recorded by the previous run, used to copy only the files modified since
+  * then. If `trustFolderMtime` is set, folders whose modification time is unchanged are not listed again, which holds
+  * on HDFS where adding, deleting or renaming a child updates the modification time of the folder. Appending to,
+  * truncating or rewriting a file in place does not update the folder, so such changes are missed. Statuses listed by
+  * the current run are collected to write the manifest for the next run.
+  *
+  * @param signature
+  *   Source and destination paths and listing filters of the copy, a manifest written for other paths or filters is
+  *   ignored
+  * @param previous
+  *   Statuses recorded by the previous run
+  * @param trustFolderMtime
+  *   Whether files of unmodified folders are taken from the previous run instead of listing the folders again
+  */
+class ListingManifest(
+    val signature: String,
+    previous: Seq[SerializableFileStatus],
+    val trustFolderMtime: Boolean = false
+) {
+
+  private val previousByUri: Map[URI, SerializableFileStatus] = previous.map(s => (s.uri, s)).toMap
+
+  private val childrenByParent: Map[URI, Seq[SerializableFileStatus]] =
+    previous.filter(_.getPath.getParent != null).groupBy(_.getPath.getParent.toUri)
+
+  private val listed = new ConcurrentLinkedQueue[SerializableFileStatus]()
+
+  def hasPrevious: Boolean = previous.nonEmpty
+
+  def previousUris: Iterator[URI] = previousByUri.keysIterator
+
+  /** Whether the file or folder has the same type, length and modification time as in the previous run. A
+    * modification time of 0 (folders on object stores) is never trusted.
+    */
+  def isUnchanged(status: SerializableFileStatus): Boolean = {
+    status.modificationTime > 0 && previousByUri.get(status.uri).exists { p =>
+      p.fileType == status.fileType && p.len == status.len && p.modificationTime == status.modificationTime
+    }
+  }
+
+  /** Children of the folder recorded by the previous run */
+  def previousChildren(folder: URI): Seq[SerializableFileStatus] = childrenByParent.getOrElse(folder, Seq.empty)
+
+  def addListed(statuses: Seq[SerializableFileStatus]): Unit = listed.addAll(statuses.asJava)
+
+  def listedUris: Set[URI] = listed.asScala.map(_.uri).toSet
+
+  /** Write the statuses listed by this run sorted by URI. The modification time of the failed files and folders and
+    * of their parent folders is written as 0, so the next run lists the parent folders again and copies them. The
+    * manifest is written to a temporary file first and then renamed over the previous manifest.
+    */
+  def write(hadoopConfiguration: Configuration, manifestPath: Path, failed: Set[URI]): Long = {
+    val fs = manifestPath.getFileSystem(hadoopConfiguration)
+    val tempPath = new Path(manifestPath.getParent, s".${manifestPath.getName}.tmp")
+    val invalidated = failed ++ failed.flatMap(uri => Option(new Path(uri).getParent).map(_.toUri))
+    val statuses = listed.asScala.toSeq
+      .map(s => if (invalidated.contains(s.uri)) s.copy(modificationTime = 0L) else s)
+      .sortBy(_.uri.toString)
+
+    val writer = new BufferedWriter(
+      new OutputStreamWriter(new GZIPOutputStream(fs.create(tempPath, true)), StandardCharsets.UTF_8)
+    )
+    try {
+      writer.write(ListingManifest.HEADER + signature)
+      writer.newLine()
+      statuses.foreach { s =>
+        writer.write(if (s.isDirectory) "D" else "F")
+        writer.write('\t')
+        writer.write(s.len.toString)
+        writer.write('\t')
+        writer.write(s.modificationTime.toString)
+        writer.write('\t')
+        writer.write(s.uri.toString)
+        writer.newLine()
+      }
+    } finally {
+      writer.close()
+    }
+
+    if (fs.exists(manifestPath) && !fs.delete(manifestPath, false))
+      throw new RuntimeException(s"Failed to delete previous manifest [$manifestPath]")
+    if (!fs.rename(tempPath, manifestPath))
+      throw new RuntimeException(s"Failed to rename temporary manifest [$tempPath] to [$manifestPath]")
+    statuses.length
+  }
+}
+
+object ListingManifest {
+
+  private val HEADER = "#datatunnel-distcp-manifest-v1\t"
+
+  /** Read the manifest of the previous run. Returns a manifest without previous statuses if the manifest does not
+    * exist or was written for other source and destination paths or listing filters.
+    */
+  def read(
+      hadoopConfiguration: Configuration,
+      manifestPath: Path,
+      signature: String,
+      trustFolderMtime: Boolean
+  ): ListingManifest = {
+    val fs = manifestPath.getFileSystem(hadoopConfiguration)
+    if (!fs.exists(manifestPath)) {
+      return new ListingManifest(signature, Seq.empty, trustFolderMtime)
+    }
+
+    val reader = new BufferedReader(
+      new InputStreamReader(new GZIPInputStream(fs.open(manifestPath)), StandardCharsets.UTF_8)
+    )
+    try {
+      if (reader.readLine() != HEADER + signature) {
+        return new ListingManifest(signature, Seq.empty, trustFolderMtime)
+      }
+
+      val statuses = Iterator
+        .continually(reader.readLine())
+        .takeWhile(_ != null)
+        .map { line =>
+          val items = line.split("\t", 4)
+          SerializableFileStatus(
+            new URI(items(3)),
+            items(1).toLong,
+            if (items(0) == "D") Directory else File,
+            items(2).toLong
+          )
+        }
+        .toVector
+      new ListingManifest(signature, statuses, trustFolderMtime)
+    } finally {
+      reader.close()
+    }
+  }
+}
@@ -2,15 +2,28 @@ package com.superior.datatunnel.distcp.objects
 
 import java.net.URI
 
-import org.apache.hadoop.fs.{FileStatus, Path}
+import org.apache.hadoop.fs.{EtagSource, FileStatus, Path}
 
 /** Case class to represent a simple status of a File. Exists because [[FileStatus]] is not serializable
+  *
+  * @param modificationTime
+  *   Modification time of the file, used to compare files without reading checksums
+  * @param etag
+  *   ETag of the object if the FileSystem provides one (S3A, ABFS)
   */
-case class SerializableFileStatus(uri: URI, len: Long, fileType: FileType) extends Serializable {
+case class SerializableFileStatus(
+    uri: URI,
+    len: Long,
+    fileType: FileType,
+    modificationTime: Long = 0L,
+    etag: Option[String] = None
+) extends Serializable {
   def getPath: Path = new Path(uri)
 
   def getLen: Long = len
 
+  def getModificationTime: Long = modificationTime
+
   def isDirectory: Boolean = fileType == Directory
 
   def isFile: Boolean = fileType == File
@@ -30,10 +43,17 @@ object SerializableFileStatus {
           s"File [$fileStatus] is neither a directory or file"
         )
 
+    val etag = fileStatus match {
+      case e: EtagSource => Option(e.getEtag).filter(_.nonEmpty)
+      case _ => None
+    }
+
     new SerializableFileStatus(
       fileStatus.getPath.toUri,
       fileStatus.getLen,
-      fileType
+      fileType,
+      fileStatus.getModificationTime,
+      etag
     )
   }
 }
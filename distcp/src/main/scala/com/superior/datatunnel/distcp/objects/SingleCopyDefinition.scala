@@ -10,10 +10,16 @@ import java.net.URI
   *   Source file/folder to copy
   * @param destination
   *   Destination to copy to
+  * @param chunk
+  *   Byte range of the source file to copy, None to copy the whole file
+  * @param destinationStatus
+  *   Status of the destination file from the destination listing, None if it did not exist
   */
 case class SingleCopyDefinition(
     source: SerializableFileStatus,
-    destination: URI
+    destination: URI,
+    chunk: Option[FileChunk] = None,
+    destinationStatus: Option[SerializableFileStatus] = None
 )
 
 /** Definition of a copy that includes any copying of parent folders this file/folder depends on
@@ -24,15 +30,27 @@ case class SingleCopyDefinition(
   *   Destination to copy to
   * @param dependentFolders
   *   Any dependent folder copies this file/folder depends on
+  * @param chunk
+  *   Byte range of the source file to copy, None to copy the whole file
+  * @param destinationStatus
+  *   Status of the destination file from the destination listing, None if it did not exist
   */
 case class CopyDefinitionWithDependencies(
     source: SerializableFileStatus,
     destination: URI,
-    dependentFolders: Seq[SingleCopyDefinition]
+    dependentFolders: Seq[SingleCopyDefinition],
+    chunk: Option[FileChunk] = None,
+    destinationStatus: Option[SerializableFileStatus] = None
 ) {
 
   def toKeyedDefinition: KeyedCopyDefinition = (destination, this)
 
   def getAllCopyDefinitions: Seq[SingleCopyDefinition] =
-    dependentFolders :+ SingleCopyDefinition(source, destination)
+    dependentFolders :+ SingleCopyDefinition(source, destination, chunk, destinationStatus)
+
+  /** Number of bytes copied by this definition */
+  def copyLength: Long = chunk.map(_.length).getOrElse(source.getLen)
+
+  /** Key used to sort copy definitions, chunks of the same file are kept in order */
+  def sortKey: String = chunk.map(c => s"${source.uri}#${c.partName}").getOrElse(source.uri.toString)
 }
@@ -2,9 +2,11 @@ package com.superior.datatunnel.distcp.utils
 
 import com.superior.datatunnel.api.model.DistCpOption
 
-import java.io.FileNotFoundException
+import java.io.{EOFException, FileNotFoundException, InputStream}
 import java.net.URI
 import com.superior.datatunnel.distcp.objects._
+import io.github.melin.jobserver.spark.api.LogUtils
+import org.apache.hadoop.conf.Configuration
 import org.apache.hadoop.fs._
 import org.apache.hadoop.io.IOUtils
 import org.apache.spark.internal.Logging
@@ -13,6 +15,38 @@ import scala.util.{Failure, Success, Try}
 
 object CopyUtils extends Logging {
 
+  /** Compare files with [[FileSystem.getFileChecksum]] if their lengths match */
+  val COMPARE_CHECKSUM = "checksum"
+
+  /** Compare files by length and modification time, the destination must not be older than the source */
+  val COMPARE_SIZE_MTIME = "size_mtime"
+
+  /** Compare files by length and ETag, falls back to size_mtime if either file has no ETag */
+  val COMPARE_ETAG = "etag"
+
+  /** Compare files by composite CRC checksum if their lengths match, missing checksums are treated as different */
+  val COMPARE_COMPOSITE_CRC = "composite_crc"
+
+  private val COMPARE_MODES = Seq(COMPARE_CHECKSUM, COMPARE_SIZE_MTIME, COMPARE_ETAG, COMPARE_COMPOSITE_CRC)
+
+  def validateUpdateCompareMode(hadoopConfiguration: Configuration, options: DistCpOption): Unit = {
+    val compareMode = options.getUpdateCompareMode
+    if (!COMPARE_MODES.contains(compareMode)) {
+      throw new IllegalArgumentException(
+        s"Unsupported updateCompareMode [$compareMode], must be one of ${COMPARE_MODES.mkString(", ")}"
+      )
+    }
+    if (
+      options.isUpdate && compareMode == COMPARE_COMPOSITE_CRC &&
+      hadoopConfiguration.get("dfs.checksum.combine.mode") != "COMPOSITE_CRC"
+    ) {
+      LogUtils.warn(
+        "updateCompareMode is composite_crc but dfs.checksum.combine.mode is not COMPOSITE_CRC, " +
+          "checksums of files with different block sizes will not match"
+      )
+    }
+  }
+
   /** Handle the copy of a file/folder
     *
     * @param sourceFS
@@ -25,20 +59,28 @@ object CopyUtils extends Logging {
     *   SparkDistCP options
     * @param taskAttemptID
     *   Spark task attempt ID (used to create a unique temporary file)
+    * @param throttle
+    *   Bandwidth and concurrency limits of the copy streams
     */
   def handleCopy(
       sourceFS: FileSystem,
       destFS: FileSystem,
       definition: SingleCopyDefinition,
       options: DistCpOption,
-      taskAttemptID: Long
+      taskAttemptID: Long,
+      throttle: CopyThrottle = CopyThrottle.Unlimited
   ): DistCPResult = {
 
     val r = {
       if (definition.source.isDirectory) {
         CopyUtils.createDirectory(destFS, definition, options)
       } else if (definition.source.isFile) {
-        CopyUtils.copyFile(sourceFS, destFS, definition, options, taskAttemptID)
+        CopyUtils.copyFile(sourceFS, destFS, definition, options, taskAttemptID, throttle) match {
+          // Skipped or failed chunks are reported once for the whole file after stitching
+          case FileCopyResult(source, destination, len, copyAction) if definition.chunk.isDefined =>
+            ChunkCopyResult(source, destination, len, definition.chunk.get, copyAction)
+          case result => result
+        }
       } else
         throw new UnsupportedOperationException(
           s"Given file is neither file nor directory. Copy unsupported: ${definition.source.getPath}"
@@ -171,27 +213,51 @@ object CopyUtils extends Logging {
       destFS: FileSystem,
       definition: SingleCopyDefinition,
       options: DistCpOption,
-      taskAttemptID: Long
-  ): FileCopyResult = {
+      taskAttemptID: Long,
+      throttle: CopyThrottle
+  ): CopyResult = {
     val destPath = new Path(definition.destination)
-    Try(destFS.getFileStatus(destPath)) match {
-      case Failure(_: FileNotFoundException) if options.isDryRun =>
-        FileCopyResult(
-          definition.source.getPath.toUri,
+    val destStatus = definition.destinationStatus match {
+      case Some(status) => Success(status)
+      case None => Try(SerializableFileStatus(destFS.getFileStatus(destPath)))
+    }
+
+    def copy(removeExisting: Boolean): CopyResult = definition.chunk match {
+      case Some(chunk) =>
+        performChunkCopy(
+          sourceFS,
+          definition.source,
+          destFS,
           definition.destination,
-          definition.source.len,
-          CopyActionResult.SkippedDryRun
+          chunk,
+          removeExisting,
+          ignoreErrors = options.isIgnoreErrors,
+          taskAttemptID,
+          throttle
         )
-      case Failure(_: FileNotFoundException) =>
+      case None =>
         performCopy(
           sourceFS,
           definition.source,
           destFS,
           definition.destination,
-          removeExisting = false,
+          removeExisting,
           ignoreErrors = options.isIgnoreErrors,
-          taskAttemptID
+          taskAttemptID,
+          throttle
         )
+    }
+
+    destStatus match {
+      case Failure(_: FileNotFoundException) if options.isDryRun =>
+        FileCopyResult(
+          definition.source.getPath.toUri,
+          definition.destination,
+          definition.source.len,
+          CopyActionResult.SkippedDryRun
+        )
+      case Failure(_: FileNotFoundException) =>
+        copy(removeExisting = false)
       case Failure(e) if options.isIgnoreErrors =>
         logError(
           s"Exception whilst getting destination file information [${definition.destination}]",
@@ -213,23 +279,10 @@ object CopyUtils extends Logging {
           CopyActionResult.SkippedDryRun
         )
       case Success(_) if options.isOverwrite =>
-        performCopy(
-          sourceFS,
-          definition.source,
-          destFS,
-          definition.destination,
-          removeExisting = true,
-          ignoreErrors = options.isIgnoreErrors,
-          taskAttemptID
-        )
+        copy(removeExisting = true)
       case Success(d) if options.isUpdate =>
         Try {
-          filesAreIdentical(
-            definition.source,
-            Option(sourceFS.getFileChecksum(definition.source.getPath)),
-            SerializableFileStatus(d),
-            Option(destFS.getFileChecksum(destPath))
-          )
+          filesAreIdentical(sourceFS, definition.source, destFS, d, options.getUpdateCompareMode)
         } match {
           case Failure(e) if options.isIgnoreErrors =>
             logError(
@@ -259,15 +312,7 @@ object CopyUtils extends Logging {
               CopyActionResult.SkippedDryRun
             )
           case Success(false) =>
-            performCopy(
-              sourceFS,
-              definition.source,
-              destFS,
-              definition.destination,
-              removeExisting = true,
-              ignoreErrors = options.isIgnoreErrors,
-              taskAttemptID
-            )
+            copy(removeExisting = true)
         }
       case Success(_) =>
         FileCopyResult(
@@ -279,6 +324,54 @@ object CopyUtils extends Logging {
     }
   }
 
+  /** Check whether two files match using the given compare mode. Only the checksum modes read anything from the
+    * FileSystems, and only if the lengths of the files match.
+    */
+  private[utils] def filesAreIdentical(
+      sourceFS: FileSystem,
+      source: SerializableFileStatus,
+      destFS: FileSystem,
+      dest: SerializableFileStatus,
+      compareMode: String
+  ): Boolean = compareMode match {
+    case COMPARE_SIZE_MTIME =>
+      sizeAndModificationTimeMatch(source, dest)
+    case COMPARE_ETAG =>
+      (source.etag, dest.etag) match {
+        case (Some(e1), Some(e2)) => source.getLen == dest.getLen && e1 == e2
+        case _ => sizeAndModificationTimeMatch(source, dest)
+      }
+    case COMPARE_COMPOSITE_CRC =>
+      source.getLen == dest.getLen && {
+        val c1 = Option(sourceFS.getFileChecksum(source.getPath))
+        val c2 = Option(destFS.getFileChecksum(dest.getPath))
+        c1.isDefined && c1 == c2
+      }
+    case _ =>
+      filesAreIdentical(
+        source,
+        Option(sourceFS.getFileChecksum(source.getPath)),
+        dest,
+        Option(destFS.getFileChecksum(dest.getPath))
+      )
+  }
+
+  /** The copy does not preserve the modification time, so a destination file written after the source was last
+    * modified is considered identical.
+    */
+  private[utils] def sizeAndModificationTimeMatch(
+      source: SerializableFileStatus,
+      dest: SerializableFileStatus
+  ): Boolean = {
+    val same = source.getLen == dest.getLen && dest.getModificationTime >= source.getModificationTime
+    logDebug(
+      s"Length [${source.getLen}] and modification time [${source.getModificationTime}] of file [${source.uri}], " +
+        s"length [${dest.getLen}] and modification time [${dest.getModificationTime}] of file [${dest.uri}]. " +
+        s"Files are ${if (same) "" else "not "}identical."
+    )
+    same
+  }
+
   /** Check whether two files match, based on length and checksum. If either of the checksums are None, then checksums
     * are not used for comparison.
     */
@@ -296,7 +389,7 @@ object CopyUtils extends Logging {
     } else {
       val c1 = mc1
       val c2 = mc2
-      val same = mc1.flatMap(c1 => mc2.map(c1 ==)).getOrElse(true)
+      val same = c1.flatMap(c1 => c2.map(c1 ==)).getOrElse(true)
       if (same) {
         logDebug(
           s"CRC [$c1] of file [${f1.uri}] was the same as CRC [$c2] of file [${f2.uri}]. Files are identical."
@@ -322,7 +415,8 @@ object CopyUtils extends Logging {
       dest: URI,
       removeExisting: Boolean,
       ignoreErrors: Boolean,
-      taskAttemptID: Long
+      taskAttemptID: Long,
+      throttle: CopyThrottle = CopyThrottle.Unlimited
   ): FileCopyResult = {
 
     val destPath = new Path(dest)
@@ -333,26 +427,28 @@ object CopyUtils extends Logging {
     )
 
     Try {
-      var in: Option[FSDataInputStream] = None
-      var out: Option[FSDataOutputStream] = None
-      try {
-        in = Some(sourceFS.open(sourceFile.getPath))
-        if (!destFS.exists(tempPath.getParent))
-          throw new RuntimeException(
-            s"Destination folder [${tempPath.getParent}] does not exist"
+      throttle.withStream(dest) {
+        var in: Option[InputStream] = None
+        var out: Option[FSDataOutputStream] = None
+        try {
+          in = Some(throttle.throttle(sourceFS.open(sourceFile.getPath)))
+          if (!destFS.exists(tempPath.getParent))
+            throw new RuntimeException(
+              s"Destination folder [${tempPath.getParent}] does not exist"
+            )
+          out = Some(destFS.create(tempPath, false))
+          IOUtils.copyBytes(
+            in.get,
+            out.get,
+            sourceFS.getConf.getInt("io.file.buffer.size", 4096)
           )
-        out = Some(destFS.create(tempPath, false))
-        IOUtils.copyBytes(
-          in.get,
-          out.get,
-          sourceFS.getConf.getInt("io.file.buffer.size", 4096)
-        )
 
-      } catch {
-        case e: Throwable => throw e
-      } finally {
-        in.foreach(_.close())
-        out.foreach(_.close())
+        } catch {
+          case e: Throwable => throw e
+        } finally {
+          in.foreach(_.close())
+          out.foreach(_.close())
+        }
       }
     }.map { _ =>
       val tempFile = destFS.getFileStatus(tempPath)
@@ -409,4 +505,209 @@ object CopyUtils extends Logging {
 
   }
 
+  /** Directory next to the destination file holding the part files of a chunked copy. Part files must be in the same
+    * directory to be concatenated.
+    */
+  def chunkDirectory(destPath: Path): Path =
+    new Path(destPath.getParent, s".sparkdistcp.chunks.${destPath.getName}")
+
+  /** Copy a byte range of the source file into a part file in the chunk directory. The range is written to a temporary
+    * file first so a failed or speculative attempt never leaves a partial part file behind.
+    */
+  def performChunkCopy(
+      sourceFS: FileSystem,
+      sourceFile: SerializableFileStatus,
+      destFS: FileSystem,
+      dest: URI,
+      chunk: FileChunk,
+      removeExisting: Boolean,
+      ignoreErrors: Boolean,
+      taskAttemptID: Long,
+      throttle: CopyThrottle = CopyThrottle.Unlimited
+  ): ChunkCopyResult = {
+
+    val chunkDir = chunkDirectory(new Path(dest))
+    val partPath = new Path(chunkDir, chunk.partName)
+    val tempPath = new Path(chunkDir, s".${chunk.partName}.$taskAttemptID")
+
+    Try {
+      if (!destFS.exists(chunkDir.getParent))
+        throw new RuntimeException(
+          s"Destination folder [${chunkDir.getParent}] does not exist"
+        )
+      destFS.mkdirs(chunkDir)
+
+      throttle.withStream(dest) {
+        val in = sourceFS.open(sourceFile.getPath)
+        try {
+          in.seek(chunk.offset)
+          val throttled = throttle.throttle(in)
+          val out = destFS.create(tempPath, true)
+          try {
+            val buffer = new Array[Byte](sourceFS.getConf.getInt("io.file.buffer.size", 4096))
+            var remaining = chunk.length
+            while (remaining > 0) {
+              val read = throttled.read(buffer, 0, Math.min(buffer.length.toLong, remaining).toInt)
+              if (read < 0)
+                throw new EOFException(
+                  s"Unexpected end of file [${sourceFile.getPath}] at offset [${chunk.offset + chunk.length - remaining}]"
+                )
+              out.write(buffer, 0, read)
+              remaining -= read
+            }
+          } finally {
+            out.close()
+          }
+        } finally {
+          in.close()
+        }
+      }
+
+      val tempFile = destFS.getFileStatus(tempPath)
+      if (tempFile.getLen != chunk.length)
+        throw new RuntimeException(
+          s"Written part file [$tempPath] length [${tempFile.getLen}] did not match chunk length [${chunk.length}]"
+        )
+
+      // A part file may be left by a failed attempt of the same chunk
+      if (destFS.exists(partPath)) destFS.delete(partPath, false)
+      if (!destFS.rename(tempPath, partPath)) {
+        val written = Try(destFS.getFileStatus(partPath).getLen).getOrElse(-1L)
+        destFS.delete(tempPath, false)
+        if (written != chunk.length)
+          throw new RuntimeException(
+            s"Failed to rename temporary file [$tempPath] to [$partPath]"
+          )
+      }
+    } match {
+      case Success(_) =>
+        ChunkCopyResult(
+          sourceFile.getPath.toUri,
+          dest,
+          sourceFile.len,
+          chunk,
+          if (removeExisting) CopyActionResult.OverwrittenOrUpdated else CopyActionResult.Copied
+        )
+      case Failure(e) if ignoreErrors =>
+        logError(
+          s"Failed to copy chunk [${chunk.index}] of file [${sourceFile.getPath}] to [$partPath]",
+          e
+        )
+        ChunkCopyResult(
+          sourceFile.getPath.toUri,
+          dest,
+          sourceFile.len,
+          chunk,
+          CopyActionResult.Failed(e)
+        )
+      case Failure(e) =>
+        throw e
+    }
+  }
+
+  /** Stitch the part files of a chunked copy into the destination file with [[FileSystem.concat]] and rename it into
+    * place. Returns a single result for the whole file. The stitched file is checked against the source checksum if
+    * the compare mode is a checksum mode.
+    */
+  def stitchChunks(
+      sourceFS: FileSystem,
+      destFS: FileSystem,
+      chunks: Seq[ChunkCopyResult],
+      ignoreErrors: Boolean,
+      compareMode: String
+  ): FileCopyResult = {
+
+    val sorted = chunks.sortBy(_.chunk.index)
+    val first = sorted.head
+    val destPath = new Path(first.destination)
+    val chunkDir = chunkDirectory(destPath)
+
+    def cleanup(): Unit = Try(destFS.delete(chunkDir, true))
+
+    val failed = sorted.map(_.copyAction).collectFirst { case f: CopyActionResult.Failed => f }
+    val copied = sorted.forall(c =>
+      c.copyAction == CopyActionResult.Copied || c.copyAction == CopyActionResult.OverwrittenOrUpdated
+    )
+
+    if (failed.isDefined) {
+      cleanup()
+      FileCopyResult(first.source, first.destination, first.len, failed.get)
+    } else if (!copied) {
+      cleanup()
+      FileCopyResult(first.source, first.destination, first.len, first.copyAction)
+    } else {
+      val removeExisting = sorted.exists(_.copyAction == CopyActionResult.OverwrittenOrUpdated)
+      Try {
+        if (sorted.map(_.chunk.index) != (0 until first.chunk.count))
+          throw new RuntimeException(
+            s"Missing chunks of file [${first.source}], expected [${first.chunk.count}] chunks but found [${sorted.length}]"
+          )
+
+        val parts = sorted.map(c => new Path(chunkDir, c.chunk.partName))
+        if (parts.length > 1) destFS.concat(parts.head, parts.tail.toArray)
+
+        val stitchedFile = destFS.getFileStatus(parts.head)
+        if (stitchedFile.getLen != first.len)
+          throw new RuntimeException(
+            s"Stitched file [${parts.head}] length [${stitchedFile.getLen}] did not match source file [${first.source}] length [${first.len}]"
+          )
+
+        if (compareMode == COMPARE_CHECKSUM || compareMode == COMPARE_COMPOSITE_CRC)
+          verifyStitchedChecksum(sourceFS, new Path(first.source), destFS, parts.head)
+
+        if (removeExisting && destFS.exists(destPath)) {
+          val res = destFS.delete(destPath, false)
+          if (!res)
+            throw new RuntimeException(
+              s"Failed to clean up existing file [$destPath]"
+            )
+        }
+        if (destFS.exists(destPath))
+          throw new RuntimeException(
+            s"Cannot create file [$destPath] as it already exists"
+          )
+        val res = destFS.rename(parts.head, destPath)
+        if (!res)
+          throw new RuntimeException(
+            s"Failed to rename stitched file [${parts.head}] to [$destPath]"
+          )
+        cleanup()
+      } match {
+        case Success(_) if removeExisting =>
+          FileCopyResult(first.source, first.destination, first.len, CopyActionResult.OverwrittenOrUpdated)
+        case Success(_) =>
+          FileCopyResult(first.source, first.destination, first.len, CopyActionResult.Copied)
+        case Failure(e) if ignoreErrors =>
+          logError(s"Failed to stitch chunks of file [${first.source}] to [$destPath]", e)
+          cleanup()
+          FileCopyResult(first.source, first.destination, first.len, CopyActionResult.Failed(e))
+        case Failure(e) =>
+          throw e
+      }
+    }
+  }
+
+  /** Compare the checksum of a stitched file with the source file. Checksums of different algorithms, e.g. MD5MD5CRC
+    * checksums of files with different block sizes, cannot be compared and are skipped.
+    */
+  private[utils] def verifyStitchedChecksum(
+      sourceFS: FileSystem,
+      sourcePath: Path,
+      destFS: FileSystem,
+      stitchedPath: Path
+  ): Unit = {
+    (Option(sourceFS.getFileChecksum(sourcePath)), Option(destFS.getFileChecksum(stitchedPath))) match {
+      case (Some(c1), Some(c2)) if c1.getAlgorithmName == c2.getAlgorithmName =>
+        if (c1 != c2)
+          throw new RuntimeException(
+            s"Stitched file [$stitchedPath] checksum [$c2] did not match source file [$sourcePath] checksum [$c1]"
+          )
+      case (c1, c2) =>
+        logWarning(
+          s"Cannot compare checksum [$c1] of source file [$sourcePath] with checksum [$c2] of stitched file " +
+            s"[$stitchedPath], only the length is verified"
+        )
+    }
+  }
+
 }
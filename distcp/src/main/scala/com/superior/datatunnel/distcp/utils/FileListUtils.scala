@@ -1,6 +1,7 @@
 package com.superior.datatunnel.distcp.utils
 
 import com.superior.datatunnel.api.model.DistCpOption
+import com.superior.datatunnel.distcp.HdfsDistCpAction
 import com.superior.datatunnel.distcp.HdfsDistCpAction.KeyedCopyDefinition
 
 import java.net.URI
@@ -12,12 +13,14 @@ import org.apache.spark.internal.Logging
 import org.apache.spark.rdd.RDD
 import com.superior.datatunnel.distcp.objects._
 import org.apache.commons.lang3.StringUtils
+import org.apache.spark.storage.StorageLevel
 
 import scala.concurrent.duration.Duration
 import scala.concurrent.{Await, Future}
 import scala.util.Try
 import scala.util.matching.Regex
 import scala.collection.JavaConverters._
+import scala.collection.mutable.ArrayBuffer
 
 object FileListUtils extends Logging {
 
@@ -48,6 +51,9 @@ object FileListUtils extends Logging {
     *   A list of regex filters that will select only results that match one or more of the filters
     * @param excludes
     *   A list of regex filters that will filter out any results that match one or more of the filters
+    * @param manifest
+    *   Statuses of the previous run, folders that are not modified since then are not listed again if the manifest
+    *   trusts folder modification times
     */
   def listFiles(
       fs: FileSystem,
@@ -56,7 +62,8 @@ object FileListUtils extends Logging {
       includePathRootInDependents: Boolean,
       includes: List[Regex],
       excludes: List[Regex],
-      excludeHiddenFile: Boolean
+      excludeHiddenFile: Boolean,
+      manifest: Option[ListingManifest] = None
   ): Seq[(SerializableFileStatus, Seq[SerializableFileStatus])] = {
 
     assert(threads > 0, "Number of threads must be positive")
@@ -95,19 +102,34 @@ object FileListUtils extends Logging {
               )
               threadsWorking.put(uuid, true)
               try {
-                var files = localFS.listLocatedStatus(p._1).toSeq
+                val previousChildren = manifest.filter(_.trustFolderMtime).flatMap { m =>
+                  p._2.lastOption
+                    .filter(s => s.getPath == p._1 && m.isUnchanged(s))
+                    .map(s => m.previousChildren(s.uri))
+                }
+                var files = previousChildren match {
+                  case Some(children) =>
+                    // Files of an unmodified folder are taken from the manifest. Sub folders are checked again as
+                    // changes inside them do not update the modification time of this folder
+                    children.map { c =>
+                      if (c.isDirectory) SerializableFileStatus(localFS.getFileStatus(c.getPath)) else c
+                    }
+                  case None =>
+                    localFS.listLocatedStatus(p._1).toSeq.map {
+                      case l if l.isSymlink =>
+                        throw new RuntimeException(s"Link [$l] is not supported")
+                      case f => SerializableFileStatus(f)
+                    }
+                }
                 if (excludeHiddenFile) {
                   files = files.filter(file => !StringUtils.startsWith(file.getPath.getName, "."))
                 }
 
                 files.foreach {
-                  case l if l.isSymlink =>
-                    throw new RuntimeException(s"Link [$l] is not supported")
                   case d if d.isDirectory =>
                     if (!pathMatches(d.getPath, excludes)) {
-                      val s = SerializableFileStatus(d)
-                      toProcess.addFirst((d.getPath, p._2 :+ s))
-                      processed.add((s, p._2))
+                      toProcess.addFirst((d.getPath, p._2 :+ d))
+                      processed.add((d, p._2))
                     }
                   case f =>
                     if (
@@ -116,7 +138,7 @@ object FileListUtils extends Logging {
                         includes
                       )) && !pathMatches(f.getPath, excludes)
                     ) {
-                      processed.add((SerializableFileStatus(f), p._2))
+                      processed.add((f, p._2))
                     }
                 }
               } catch {
@@ -164,9 +186,79 @@ object FileListUtils extends Logging {
 
   }
 
+  /** List a tree with executors: the driver lists the top `depth` levels and the subtrees below are listed in parallel
+    * by executors with [[listFiles]]. The driver only holds the statuses of the top levels. The returned RDD is
+    * persisted as it is used more than once and listing it again would be expensive, the caller unpersists it once the
+    * copy results are collected.
+    */
+  def listFilesDistributed(
+      sparkContext: SparkContext,
+      fs: FileSystem,
+      path: Path,
+      depth: Int,
+      threads: Int,
+      includePathRootInDependents: Boolean,
+      includes: List[Regex],
+      excludes: List[Regex],
+      excludeHiddenFile: Boolean
+  ): RDD[(SerializableFileStatus, Seq[SerializableFileStatus])] = {
+
+    val maybePathRoot =
+      if (includePathRootInDependents)
+        Some(SerializableFileStatus(fs.getFileStatus(path)))
+      else None
+
+    val listed = ArrayBuffer[(SerializableFileStatus, Seq[SerializableFileStatus])]()
+    listed ++= maybePathRoot.map((_, Seq.empty))
+    var folders: Seq[(SerializableFileStatus, Seq[SerializableFileStatus])] = Seq.empty
+    var toList: Seq[(Path, Seq[SerializableFileStatus])] = Seq((path, maybePathRoot.toSeq))
+
+    logInfo(s"Beginning list of top [$depth] levels of [$path]")
+    for (_ <- 0 until depth) {
+      folders = toList.flatMap { case (folder, dependents) =>
+        var files = fs.listStatus(folder).toSeq
+        if (excludeHiddenFile) {
+          files = files.filter(file => !StringUtils.startsWith(file.getPath.getName, "."))
+        }
+        files.flatMap {
+          case l if l.isSymlink =>
+            throw new RuntimeException(s"Link [$l] is not supported")
+          case d if d.isDirectory =>
+            if (!pathMatches(d.getPath, excludes)) Some((SerializableFileStatus(d), dependents))
+            else None
+          case f =>
+            if ((includes.isEmpty || pathMatches(f.getPath, includes)) && !pathMatches(f.getPath, excludes))
+              listed += ((SerializableFileStatus(f), dependents))
+            None
+        }
+      }
+      listed ++= folders
+      toList = folders.map { case (d, dependents) => (d.getPath, dependents :+ d) }
+    }
+    logInfo(s"Finished list of top [$depth] levels of [$path], [${toList.length}] subtrees to list on executors")
+
+    val serConfig = new ConfigSerDeser(sparkContext.hadoopConfiguration)
+    val fsURI = fs.getUri
+    val subtrees = toList.map { case (folder, dependents) => (folder.toUri, dependents) }
+    val numSlices = Math.max(1, Math.min(subtrees.length, sparkContext.defaultParallelism * 4))
+    val subtreeRDD = sparkContext
+      .parallelize(subtrees, numSlices)
+      .mapPartitions { iterator =>
+        val subtreeFS = FileSystem.get(fsURI, serConfig.get())
+        iterator.flatMap { case (folder, dependents) =>
+          listFiles(subtreeFS, new Path(folder), threads, false, includes, excludes, excludeHiddenFile)
+            .map { case (f, d) => (f, dependents ++ d) }
+        }
+      }
+
+    (sparkContext.parallelize(listed) union subtreeRDD).persist(StorageLevel.MEMORY_AND_DISK)
+  }
+
   /** List all files in the given source URIs. This function will throw an exception if any source files collide on
     * identical destination locations and any collisions on any cases where a source files is the same as the
-    * destination file (copying between the same FileSystem)
+    * destination file (copying between the same FileSystem). If a manifest of the previous run is given, the listed
+    * statuses are recorded in the manifest and only files and folders modified since the previous run are returned.
+    * Otherwise, if `distributedListingDepth` is positive, the source trees are listed with [[listFilesDistributed]].
     */
   def getSourceFiles(
       sparkContext: SparkContext,
@@ -176,24 +268,46 @@ object FileListUtils extends Logging {
       numListstatusThreads: Int,
       includes: List[Regex],
       excludes: List[Regex],
-      excludeHiddenFile: Boolean
+      excludeHiddenFile: Boolean,
+      manifest: Option[ListingManifest] = None,
+      distributedListingDepth: Int = 0
   ): RDD[KeyedCopyDefinition] = {
     val sourceRDD = sourceURIs
       .map { sourceURI =>
         val sourceFS =
           new Path(sourceURI).getFileSystem(sparkContext.hadoopConfiguration)
-        sparkContext
-          .parallelize(
-            FileListUtils.listFiles(
-              sourceFS,
-              new Path(sourceURI),
-              numListstatusThreads,
-              !updateOverwritePathBehaviour,
-              includes,
-              excludes,
-              excludeHiddenFile
-            )
+        val listedRDD = if (manifest.isEmpty && distributedListingDepth > 0) {
+          FileListUtils.listFilesDistributed(
+            sparkContext,
+            sourceFS,
+            new Path(sourceURI),
+            distributedListingDepth,
+            numListstatusThreads,
+            !updateOverwritePathBehaviour,
+            includes,
+            excludes,
+            excludeHiddenFile
           )
+        } else {
+          val listed = FileListUtils.listFiles(
+            sourceFS,
+            new Path(sourceURI),
+            numListstatusThreads,
+            !updateOverwritePathBehaviour,
+            includes,
+            excludes,
+            excludeHiddenFile,
+            manifest
+          )
+          val modified = manifest match {
+            case Some(m) =>
+              m.addListed(listed.map(_._1))
+              listed.filter { case (f, _) => !m.isUnchanged(f) }
+            case None => listed
+          }
+          sparkContext.parallelize(modified)
+        }
+        listedRDD
           .map { case (f, d) =>
             val dependentFolders = d.map { dl =>
               val udl = PathUtils.sourceURIToDestinationURI(
@@ -216,9 +330,16 @@ object FileListUtils extends Logging {
       .reduce(_ union _)
       .map(_.toKeyedDefinition)
 
-    handleSourceCollisions(sourceRDD)
+    try {
+      handleSourceCollisions(sourceRDD)
 
-    handleDestCollisions(sourceRDD)
+      handleDestCollisions(sourceRDD)
+    } catch {
+      case e: Throwable =>
+        // The copy does not run, release the persisted listing
+        HdfsDistCpAction.unpersistLineage(sourceRDD)
+        throw e
+    }
 
     sourceRDD
   }
@@ -232,8 +353,20 @@ object FileListUtils extends Logging {
   ): RDD[(URI, SerializableFileStatus)] = {
     val destinationFS =
       destinationPath.getFileSystem(sparkContext.hadoopConfiguration)
-    sparkContext
-      .parallelize(
+    val listedRDD = if (options.getDistributedListingDepth > 0) {
+      FileListUtils.listFilesDistributed(
+        sparkContext,
+        destinationFS,
+        destinationPath,
+        options.getDistributedListingDepth,
+        options.getNumListstatusThreads,
+        false,
+        List.empty,
+        List.empty,
+        true
+      )
+    } else {
+      sparkContext.parallelize(
         FileListUtils.listFiles(
           destinationFS,
           destinationPath,
@@ -244,7 +377,8 @@ object FileListUtils extends Logging {
           true
         )
       )
-      .map { case (f, _) => (f.getPath.toUri, f) }
+    }
+    listedRDD.map { case (f, _) => (f.getPath.toUri, f) }
   }
 
   /** Throw an exception if any source files collide on identical destination locations
@@ -274,7 +408,7 @@ object FileListUtils extends Logging {
 
     val collisions = source
       .collect {
-        case (_, CopyDefinitionWithDependencies(s, d, _)) if s.uri == d => d
+        case (_, CopyDefinitionWithDependencies(s, d, _, _, _)) if s.uri == d => d
       }
 
     collisions
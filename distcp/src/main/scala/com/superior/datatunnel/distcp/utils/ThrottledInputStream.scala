@@ -0,0 +1,77 @@
+package com.superior.datatunnel.distcp.utils
+
+import java.io.{InputStream, InterruptedIOException}
+
+/** Input stream limited to `bytesPerSecond` with a token bucket. The bucket holds at most one second of tokens, bytes
+  * are taken from the bucket after they are read and the reader sleeps while the bucket is in debt.
+  */
+class ThrottledInputStream(in: InputStream, bytesPerSecond: Long) extends InputStream {
+
+  require(bytesPerSecond > 0, "bytesPerSecond must be positive")
+
+  private val NANOS_PER_SECOND = 1000000000L
+
+  private var tokens: Long = bytesPerSecond
+
+  private var lastRefillNanos: Long = System.nanoTime()
+
+  override def read(): Int = {
+    val value = in.read()
+    if (value >= 0) {
+      acquire(1)
+    }
+    value
+  }
+
+  override def read(b: Array[Byte], off: Int, len: Int): Int = {
+    // Read at most one second of data at once so a single read cannot run far ahead of the rate
+    val read = in.read(b, off, Math.min(len.toLong, bytesPerSecond).toInt.max(1))
+    if (read > 0) {
+      acquire(read)
+    }
+    read
+  }
+
+  override def skip(n: Long): Long = in.skip(n)
+
+  override def available(): Int = in.available()
+
+  override def close(): Unit = in.close()
+
+  private def acquire(bytes: Int): Unit = {
+    refill()
+    tokens -= bytes
+    while (tokens < 0) {
+      val waitNanos = (-tokens.toDouble * NANOS_PER_SECOND / bytesPerSecond).toLong.max(1L)
+      try {
+        Thread.sleep(waitNanos / 1000000L, (waitNanos % 1000000L).toInt)
+      } catch {
+        case e: InterruptedException =>
+          Thread.currentThread().interrupt()
+          val exception = new InterruptedIOException("Interrupted while throttling copy stream")
+          exception.initCause(e)
+          throw exception
+      }
+      refill()
+    }
+  }
+
+  private def refill(): Unit = {
+    val now = System.nanoTime()
+    val elapsedNanos = now - lastRefillNanos
+    if (elapsedNanos >= 2 * NANOS_PER_SECOND) {
+      // The debt is at most one second of tokens, so the bucket is full after two seconds. Capping here also keeps a
+      // long pause (a stalled read or a retry) from overflowing the token math
+      tokens = bytesPerSecond
+      lastRefillNanos = now
+      return
+    }
+
+    val newTokens = (elapsedNanos.toDouble * bytesPerSecond / NANOS_PER_SECOND).toLong
+    if (newTokens > 0) {
+      tokens = Math.min(bytesPerSecond, tokens + newTokens)
+      // Keep the remainder of the elapsed time that did not produce a whole token
+      lastRefillNanos = now - (elapsedNanos - (newTokens.toDouble * NANOS_PER_SECOND / bytesPerSecond).toLong)
+    }
+  }
+}